@@ -1,8 +1,8 @@
 package edu.utexas.cs.alr;
 
 import edu.utexas.cs.alr.ast.Expr;
-import edu.utexas.cs.alr.util.ExprUtils;
 import edu.utexas.cs.alr.util.SatUtil;
+import edu.utexas.cs.alr.util.StreamingExprParser;
 
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 
@@ -14,13 +14,9 @@ public class SATDriver
     {
         try
         {
-            Expr e = ExprUtils.parseFrom(System.in);
-<<<<<<< HEAD
-=======
-            //Tseitin's Transformation
->>>>>>> 083e919ec84aabbae83a8fbef034fc236701dc6d
-            Expr cnfExpr = ExprUtils.toTseitin(e);
-            System.out.println(SatUtil.checkSAT(cnfExpr) ? "SAT" : "UNSAT");
+            Expr e = StreamingExprParser.parse(System.in);
+            //Tseitin's Transformation, straight into the solver's clauses
+            System.out.println(SatUtil.checkSAT(e) ? "SAT" : "UNSAT");
         }
         catch (IOException ex)
         {
@@ -8,6 +8,8 @@ public class AndExpr extends Expr
 
     private final Expr rightExpr;
 
+    private final int hash;
+
     AndExpr(Expr left, Expr right)
     {
         if (!Objects.nonNull(left))
@@ -17,6 +19,7 @@ public class AndExpr extends Expr
 
         this.leftExpr = left;
         this.rightExpr = right;
+        this.hash = Objects.hash(leftExpr, rightExpr);
     }
 
     public Expr getLeft()
@@ -41,13 +44,13 @@ public class AndExpr extends Expr
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AndExpr andExpr = (AndExpr) o;
-        return (leftExpr.equals(andExpr.leftExpr) && rightExpr.equals(andExpr.rightExpr));
+        return (leftExpr == andExpr.leftExpr && rightExpr == andExpr.rightExpr);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(leftExpr, rightExpr);
+        return hash;
     }
 
     protected void prettyPrint(StringBuilder b, String indent)
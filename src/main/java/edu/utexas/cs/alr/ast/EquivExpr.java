@@ -8,6 +8,8 @@ public class EquivExpr extends Expr
 
     private final Expr rightExpr;
 
+    private final int hash;
+
     EquivExpr(Expr left, Expr right)
     {
         if (!Objects.nonNull(left))
@@ -17,6 +19,7 @@ public class EquivExpr extends Expr
 
         this.leftExpr = left;
         this.rightExpr = right;
+        this.hash = Objects.hash(leftExpr, rightExpr);
     }
 
     public Expr getLeft()
@@ -41,13 +44,13 @@ public class EquivExpr extends Expr
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         EquivExpr equivExpr = (EquivExpr) o;
-        return (leftExpr.equals(equivExpr.leftExpr) && rightExpr.equals(equivExpr.rightExpr));
+        return (leftExpr == equivExpr.leftExpr && rightExpr == equivExpr.rightExpr);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(leftExpr, rightExpr);
+        return hash;
     }
 
     @Override
@@ -8,6 +8,8 @@ public class ImplExpr extends Expr
 
     private final Expr consequent;
 
+    private final int hash;
+
     ImplExpr(Expr antecedent, Expr consequent)
     {
         if (!Objects.nonNull(antecedent))
@@ -17,6 +19,7 @@ public class ImplExpr extends Expr
 
         this.antecedent = antecedent;
         this.consequent = consequent;
+        this.hash = Objects.hash(antecedent, consequent);
     }
 
     public Expr getAntecedent()
@@ -41,13 +44,13 @@ public class ImplExpr extends Expr
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ImplExpr implExpr = (ImplExpr) o;
-        return antecedent.equals(implExpr.antecedent) && consequent.equals(implExpr.consequent);
+        return antecedent == implExpr.antecedent && consequent == implExpr.consequent;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(antecedent, consequent);
+        return hash;
     }
 
     @Override
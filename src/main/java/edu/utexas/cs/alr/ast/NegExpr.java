@@ -6,12 +6,15 @@ public class NegExpr extends Expr
 {
     private final Expr expr;
 
+    private final int hash;
+
     NegExpr(Expr expr)
     {
         if (!Objects.nonNull(expr))
             throw new IllegalArgumentException("expr cannot be null");
 
         this.expr = expr;
+        this.hash = Objects.hash(expr);
     }
 
     public Expr getExpr()
@@ -31,13 +34,13 @@ public class NegExpr extends Expr
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NegExpr negExpr = (NegExpr) o;
-        return expr.equals(negExpr.expr);
+        return expr == negExpr.expr;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(expr);
+        return hash;
     }
 
     @Override
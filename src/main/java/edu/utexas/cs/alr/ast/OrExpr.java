@@ -8,6 +8,8 @@ public class OrExpr extends Expr
 
     private final Expr rightExpr;
 
+    private final int hash;
+
     OrExpr(Expr left, Expr right)
     {
         if (!Objects.nonNull(left))
@@ -17,6 +19,7 @@ public class OrExpr extends Expr
 
         this.leftExpr = left;
         this.rightExpr = right;
+        this.hash = Objects.hash(leftExpr, rightExpr);
     }
 
     public Expr getLeft()
@@ -41,13 +44,13 @@ public class OrExpr extends Expr
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         OrExpr orExpr = (OrExpr) o;
-        return (leftExpr.equals(orExpr.leftExpr) && rightExpr.equals(orExpr.rightExpr));
+        return (leftExpr == orExpr.leftExpr && rightExpr == orExpr.rightExpr);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(leftExpr, rightExpr);
+        return hash;
     }
 
     @Override
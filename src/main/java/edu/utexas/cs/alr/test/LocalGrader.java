@@ -1,8 +1,8 @@
 package edu.utexas.cs.alr.test;
 
 import edu.utexas.cs.alr.ast.Expr;
-import edu.utexas.cs.alr.util.ExprUtils;
 import edu.utexas.cs.alr.util.SatUtil;
+import edu.utexas.cs.alr.util.StreamingExprParser;
 
 import java.io.*;
 import java.nio.file.*;
@@ -116,13 +116,9 @@ public class LocalGrader {
     
     private boolean runTest(Path testFile, String expected) {
         try {
-            // Read the test file
-            String input = new String(Files.readAllBytes(testFile));
-            
-            // Parse and check SAT
-            Expr expr = ExprUtils.parseFrom(new ByteArrayInputStream(input.getBytes()));
-            Expr cnfExpr = ExprUtils.toTseitin(expr);
-            boolean result = SatUtil.checkSAT(cnfExpr);
+            // Parse the memory-mapped test file and check SAT; the solver Tseitin encodes it
+            Expr expr = StreamingExprParser.parse(testFile);
+            boolean result = SatUtil.checkSAT(expr);
             
             // Check result
             String resultStr = result ? "SAT" : "UNSAT";
@@ -0,0 +1,82 @@
+package edu.utexas.cs.alr.test;
+
+import edu.utexas.cs.alr.ast.Expr;
+import edu.utexas.cs.alr.util.ExprUtils;
+import edu.utexas.cs.alr.util.StreamingExprParser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parse throughput of the streaming parser and the ANTLR front end, in MB/s.
+ * Usage: ParseBenchmark [rounds [files...]]; without files, all test cases are parsed.
+ * Inputs are read into memory first, so only parsing is timed. The check that both parsers agree
+ * doubles as their warm-up round; expressions are hash-consed, so timed rounds find the nodes
+ * built before.
+ */
+public class ParseBenchmark {
+    private static final String TEST_CASES_DIR = "resources/test-cases";
+    
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        if (files.isEmpty()) {
+            try (Stream<Path> paths = Files.walk(Paths.get(TEST_CASES_DIR))) {
+                files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+        
+        List<byte[]> inputs = new ArrayList<>();
+        long bytes = 0;
+        for (Path file : files) {
+            byte[] input = Files.readAllBytes(file);
+            inputs.add(input);
+            bytes += input.length;
+        }
+        
+        // Both parsers must build the same hash-consed expressions
+        for (int i = 0; i < inputs.size(); i++) {
+            if (parseStreaming(inputs.get(i)) != parseAntlr(inputs.get(i))) {
+                System.out.println("Parsers disagree on " + files.get(i));
+            }
+        }
+        
+        System.out.printf("%d files, %.2f MB, %d rounds%n", files.size(), bytes / 1e6, rounds);
+        double streaming = throughput(inputs, bytes, rounds, true);
+        double antlr = throughput(inputs, bytes, rounds, false);
+        System.out.printf("streaming: %8.2f MB/s%n", streaming);
+        System.out.printf("antlr:     %8.2f MB/s%n", antlr);
+        System.out.printf("speedup:   %8.2fx%n", streaming / antlr);
+    }
+    
+    private static double throughput(List<byte[]> inputs, long bytes, int rounds, boolean streaming)
+            throws IOException {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (byte[] input : inputs) {
+                if (streaming) {
+                    parseStreaming(input);
+                } else {
+                    parseAntlr(input);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return bytes * rounds / 1e6 / seconds;
+    }
+    
+    private static Expr parseStreaming(byte[] input) {
+        return StreamingExprParser.parse(ByteBuffer.wrap(input));
+    }
+    
+    private static Expr parseAntlr(byte[] input) throws IOException {
+        return ExprUtils.parseFrom(new ByteArrayInputStream(input));
+    }
+}
@@ -4,290 +4,1854 @@ import edu.utexas.cs.alr.ast.Expr;
 
 import java.util.*;
 
-<<<<<<< HEAD
-
-=======
 /**
  * CDCL (Conflict-Driven Clause Learning) SAT solver.
  */
->>>>>>> 083e919ec84aabbae83a8fbef034fc236701dc6d
 public class CDCLSolver {
-    private List<Set<Long>> clauses;
+    private static final byte SEEN_IN_CLAUSE = 1;
+    private static final byte SEEN_REDUNDANT = 2;
+    private static final byte SEEN_REMOVABLE = 3;
+    
+    // Tseitin and other auxiliary variables get ids from here on, apart from the input ids
+    private static final long AUX_ID_BASE = 1L << 62;
+    
+    private final SolverConfig config;
+    
+    // All clauses; the first two literals of every clause are its watched literals
+    private final ClauseArena arena;
+    
+    // References of the original clauses; learned ones are managed by the learned clause database
+    private final IntVec clauses;
+    private final LearnedClauseDatabase learnts;
+    
     private ImplicationGraph graph;
-    private Set<Long> allVariables;
+    private final VSIDS vsids;
+    private final RestartPolicy restartPolicy;
+    
+    // Variable id in the input expression -> solver variable, and the reverse mapping
+    private final Map<Long, Integer> varIndex;
+    private long[] varIds;
+    private int numVars;
+    
+    // Size of the per-variable arrays, which grow ahead of numVars as variables are added
+    private int capacity;
+    
+    // Largest variable id so far, including Tseitin variables
+    private long maxVarId = 0;
+    
+    // Preprocessing by bounded variable elimination (null if disabled); eliminated variables are
+    // not searched and get their values from the elimination stack
+    private final VariableEliminator eliminator;
+    private int numSearchVars;
+    
+    // Equivalent literal substitution before search (null if disabled); substituted variables
+    // are not searched and take the value of their representative
+    private final EquivalenceReducer reducer;
+    
+    // Number of variables when preprocessing ran; variables added later are never removed
+    private final int preprocessedVars;
+    
+    // Subsumption and self-subsuming resolution, run on the original clauses before search and
+    // periodically on the learned clauses (null if disabled)
+    private final Subsumer subsumer;
+    private long nextSubsumption;
+    
+    // Whether the clauses are known to be unsatisfiable, by preprocessing or a conflict at level 0
+    private boolean unsatisfiable;
+    
+    // Whether the unit clauses were asserted and probing ran, which the first call to solve does
+    private boolean initialized = false;
+    
+    // Assumption literals of the current call to solve, decided one per level before any other
+    // decision, and the assumptions found responsible when they failed
+    private final IntVec assumptions = new IntVec();
+    private final IntVec failedAssumptions = new IntVec();
+    
+    // Clause exchange with the other solvers of a portfolio (null if not shared): this solver's
+    // id and reader of the clauses of the others, and hashes of the clauses exported or imported
+    // so far, to filter duplicates
+    private int exchangeId;
+    private ClauseExchange exchange;
+    private ClauseExchange.Reader importReader;
+    private final Set<Long> sharedClauses = new HashSet<>();
+    private int[] importLits = new int[8];
+    
+    // Set from another thread to make the running call to solve return false
+    private volatile boolean interrupted = false;
+    
+    // Value of every variable in the last model found, or null if none was found
+    private boolean[] model;
+    
+    // Watch lists of clauses with more than three literals: literal -> (clause, blocker) pairs of
+    // the clauses currently watching that literal. The blocker is some other literal of the clause;
+    // while it is true the clause is satisfied and need not be visited.
+    private IntVec[] watches;
+    
+    // Binary clauses by literal: (other literal, clause) pairs of the binary clauses containing it
+    private IntVec[] binaryWatches;
+    
+    // Ternary clauses by literal: (other literal, other literal, clause) triples of the ternary
+    // clauses containing it; ternary clauses are checked inline and never touch the arena
+    private IntVec[] ternaryWatches;
+    
+    // Next trail position whose consequences have not been propagated yet
+    private int propagationHead;
+    
+    // Whether implications get the highest level of their reason rather than the current level,
+    // so that the trail may hold levels out of order
+    private final boolean chronological;
+    
+    // Per-level stamps used to count the distinct levels of a clause
+    private int[] levelStamps;
+    private int stamp = 0;
+    
+    // Clause learned from the last conflict; its first literal is the asserting literal
+    private final IntVec learnedClause = new IntVec();
+    
+    // Marks of variables visited by conflict analysis and minimization, and the variables to unmark
+    private byte[] seen;
+    private final IntVec toClear = new IntVec();
+    private final IntVec minimizeStack = new IntVec();
+    
+    // Propagation count when vivification last ran; its budget grows with the search since then
+    private long lastVivification = 0;
+    
+    // Literals of the clause being vivified, and the ones it keeps
+    private int[] vivifyLits = new int[8];
+    private final IntVec vivifyKept = new IntVec();
+    
+    private final SolverStats stats = new SolverStats();
+    
+    public CDCLSolver(Expr expr) {
+        this(expr, new SolverConfig());
+    }
     
-    public CDCLSolver(Expr cnfExpr) {
-        this.clauses = CNFConverter.toClauses(cnfExpr);
-        this.graph = new ImplicationGraph();
-        this.allVariables = new HashSet<>();
+    /**
+     * Create an empty solver for incremental use. Clauses are added with
+     * {@link #addClause(long...)} and {@link #addExpr(Expr)} between calls to
+     * {@link #solve(long...)}, which keep the learned clauses, activities and phases.
+     */
+    public CDCLSolver(SolverConfig config) {
+        this((Expr) null, config);
+    }
+    
+    /**
+     * Create a solver for the clauses of an expression. An expression that is not in CNF is
+     * Tseitin encoded straight into clauses, with auxiliary variables as in {@link #addExpr(Expr)}.
+     */
+    public CDCLSolver(Expr expr, SolverConfig config) {
+        this.config = config;
+        this.arena = new ClauseArena();
+        this.varIndex = new HashMap<>();
+        this.clauses = expr == null ? new IntVec()
+                                    : CNFConverter.toTseitinClauses(expr, AUX_ID_BASE, arena,
+                                                                    varIndex);
+        this.learnts = new LearnedClauseDatabase(arena, config);
+        
+        this.numVars = varIndex.size();
+        this.capacity = numVars;
+        this.graph = new ImplicationGraph(numVars);
+        this.vsids = new VSIDS(numVars, config.getVarDecay());
+        this.restartPolicy = config.createRestartPolicy();
+        this.chronological = config.isChronologicalBacktracking();
+        this.levelStamps = new int[numVars + 1];
+        this.seen = new byte[numVars];
+        this.varIds = new long[numVars];
+        for (Map.Entry<Long, Integer> entry : varIndex.entrySet()) {
+            varIds[entry.getValue()] = entry.getKey();
+            maxVarId = Math.max(maxVarId, entry.getKey());
+        }
+        
+        stats.originalVars = numVars;
+        stats.originalClauses = clauses.size();
+        boolean consistent = true;
+        if (config.isSubstitution()) {
+            this.reducer = new EquivalenceReducer(arena, numVars);
+            consistent = reducer.reduce(clauses, var -> false);
+            stats.substitutedVars = reducer.getSubstitutedCount();
+        } else {
+            this.reducer = null;
+        }
+        if (config.isSubsumption()) {
+            this.subsumer = new Subsumer(arena, numVars);
+            this.nextSubsumption = config.getSubsumeInterval();
+            // Clauses left half rewritten by an inconsistent substitution are not touched again
+            if (consistent) {
+                consistent = subsumer.run(clauses, new IntVec(1), cref -> false, new IntVec(1),
+                                          config.getSubsumptionBudget());
+                stats.subsumedClauses = subsumer.getSubsumed();
+                stats.strengthenedClauses = subsumer.getStrengthened();
+            }
+        } else {
+            this.subsumer = null;
+        }
+        if (consistent && config.isElimination()) {
+            this.eliminator = new VariableEliminator(arena, numVars, config);
+            for (int var = 0; reducer != null && var < numVars; var++) {
+                if (reducer.isSubstituted(var)) {
+                    eliminator.freeze(var);
+                }
+            }
+            consistent = eliminator.eliminate(clauses);
+            stats.eliminatedVars = eliminator.getEliminatedCount();
+        } else {
+            this.eliminator = null;
+        }
+        this.preprocessedVars = numVars;
+        this.unsatisfiable = !consistent;
+        int[] forwarding = arena.compact();
+        for (int i = 0; i < clauses.size(); i++) {
+            clauses.set(i, forwarding[clauses.get(i)]);
+        }
+        this.numSearchVars = numVars - stats.eliminatedVars - stats.substitutedVars;
+        stats.remainingClauses = clauses.size();
+        prepareSearch();
+    }
+    
+    /**
+     * Create a solver for the clauses of a prototype that was not solved yet, searching them with
+     * its own configuration. The variable mapping and the preprocessing results of the prototype
+     * are shared read-only, so neither solver may get clauses or variables added. The clauses are
+     * copied into an arena of their own in one block, since search reorders clause literals in
+     * place; preprocessing options of the configuration are ignored.
+     */
+    CDCLSolver(CDCLSolver prototype, SolverConfig config) {
+        if (prototype.initialized) {
+            throw new IllegalStateException("Cannot copy a solver that was solved already");
+        }
+        this.config = config;
+        this.arena = new ClauseArena(prototype.arena);
+        this.varIndex = prototype.varIndex;
+        this.clauses = new IntVec(prototype.clauses);
+        this.learnts = new LearnedClauseDatabase(arena, config);
+        
+        this.numVars = prototype.numVars;
+        this.capacity = numVars;
+        this.graph = new ImplicationGraph(numVars);
+        this.vsids = new VSIDS(numVars, config.getVarDecay());
+        this.restartPolicy = config.createRestartPolicy();
+        this.chronological = config.isChronologicalBacktracking();
+        this.levelStamps = new int[numVars + 1];
+        this.seen = new byte[numVars];
+        this.varIds = prototype.varIds;
+        this.maxVarId = prototype.maxVarId;
+        
+        this.reducer = prototype.reducer;
+        this.eliminator = prototype.eliminator;
+        if (config.isSubsumption()) {
+            this.subsumer = new Subsumer(arena, numVars);
+            this.nextSubsumption = config.getSubsumeInterval();
+        } else {
+            this.subsumer = null;
+        }
+        this.preprocessedVars = prototype.preprocessedVars;
+        this.unsatisfiable = prototype.unsatisfiable;
+        this.numSearchVars = prototype.numSearchVars;
+        
+        stats.originalVars = prototype.stats.originalVars;
+        stats.originalClauses = prototype.stats.originalClauses;
+        stats.substitutedVars = prototype.stats.substitutedVars;
+        stats.subsumedClauses = prototype.stats.subsumedClauses;
+        stats.strengthenedClauses = prototype.stats.strengthenedClauses;
+        stats.eliminatedVars = prototype.stats.eliminatedVars;
+        stats.remainingClauses = prototype.stats.remainingClauses;
+        prepareSearch();
+    }
+    
+    /**
+     * Set up branching and the watch lists for the preprocessed clauses. Variables removed by
+     * preprocessing are not branched on; with a random seed, the initial activities and phases
+     * are drawn at random.
+     */
+    private void prepareSearch() {
+        for (int var = 0; var < numVars; var++) {
+            if (isRemoved(var)) {
+                vsids.exclude(var);
+            }
+        }
+        if (config.getRandomSeed() != 0) {
+            Random random = new Random(config.getRandomSeed());
+            vsids.randomize(random);
+            graph.randomizePhases(random);
+        }
         
-        // Collect all variables
-        for (Set<Long> clause : clauses) {
-            for (Long lit : clause) {
-                allVariables.add(Math.abs(lit));
+        this.watches = new IntVec[2 * numVars];
+        this.binaryWatches = new IntVec[2 * numVars];
+        this.ternaryWatches = new IntVec[2 * numVars];
+        for (int i = 0; i < 2 * numVars; i++) {
+            watches[i] = new IntVec(4);
+            binaryWatches[i] = new IntVec(2);
+            ternaryWatches[i] = new IntVec(3);
+        }
+        for (int i = 0; i < clauses.size(); i++) {
+            if (arena.size(clauses.get(i)) > 1) {
+                attachClause(clauses.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Add a clause given as variable ids of the input, where a negative id stands for the negated
+     * variable. Variables not seen before are added to the solver.
+     * Returns false if the clauses are now known to be unsatisfiable.
+     * Throws IllegalStateException if preprocessing removed variables, since their clauses are
+     * gone; incremental use needs a solver created empty or without elimination and substitution.
+     */
+    public boolean addClause(long... lits) {
+        checkAddable();
+        backtrack(0);
+        int[] encoded = new int[lits.length];
+        for (int i = 0; i < lits.length; i++) {
+            encoded[i] = CNFConverter.toLit(lits[i], varIndex);
+        }
+        growVariables();
+        if (!unsatisfiable) {
+            addOriginal(arena.alloc(encoded, encoded.length, false));
+        }
+        return !unsatisfiable;
+    }
+    
+    /**
+     * Add the clauses of an expression. An expression that is not in CNF is Tseitin encoded, with
+     * auxiliary variables whose ids start at 2^62, so they do not clash with input ids below.
+     * Returns false if the clauses are now known to be unsatisfiable.
+     * Throws IllegalStateException under the same condition as {@link #addClause(long...)}.
+     */
+    public boolean addExpr(Expr expr) {
+        checkAddable();
+        backtrack(0);
+        IntVec added = CNFConverter.toTseitinClauses(expr, Math.max(AUX_ID_BASE, maxVarId + 1),
+                                                     arena, varIndex);
+        growVariables();
+        for (int i = 0; i < added.size(); i++) {
+            if (unsatisfiable) {
+                arena.free(added.get(i));
+            } else {
+                addOriginal(added.get(i));
+            }
+        }
+        return !unsatisfiable;
+    }
+    
+    /**
+     * Add a variable with a fresh id from the range of auxiliary variables, e.g. for an encoding
+     * or an activation literal, and return its id.
+     */
+    public long newVarId() {
+        long id = Math.max(AUX_ID_BASE, maxVarId + 1);
+        CNFConverter.toLit(id, varIndex);
+        growVariables();
+        return id;
+    }
+    
+    /**
+     * Solve the SAT problem using CDCL algorithm, under assumptions given as variable ids of the
+     * input, where a negative id stands for the negated variable. The assumptions only hold for
+     * this call; if the clauses are unsatisfiable under them, {@link #getFailedAssumptions()}
+     * gives a subset of the assumptions that is enough for that.
+     */
+    public boolean solve(long... assumptions) {
+        backtrack(0);
+        model = null;
+        failedAssumptions.clear();
+        this.assumptions.clear();
+        for (long id : assumptions) {
+            int lit = CNFConverter.toLit(id, varIndex);
+            if (isRemoved(Lit.var(lit))) {
+                throw new IllegalArgumentException("Assumption on variable " + Math.abs(id)
+                                                   + " which was removed by preprocessing");
             }
+            this.assumptions.push(lit);
         }
+        growVariables();
+        
+        // Every assumption takes a level of its own
+        if (levelStamps.length <= numVars + assumptions.length) {
+            levelStamps = Arrays.copyOf(levelStamps, numVars + assumptions.length + 1);
+        }
+        if (unsatisfiable) {
+            return false;
+        }
+        boolean sat = search();
+        unsatisfiable = !sat && failedAssumptions.isEmpty() && !interrupted;
+        return sat;
+    }
+    
+    /**
+     * Share learned clauses with other solvers running on the same variables, e.g. copies of one
+     * prototype: clauses learned within the LBD and size limits of the configuration are
+     * published, and the clauses of the others are imported whenever the search is at level 0.
+     */
+    void setClauseExchange(ClauseExchange exchange, int id) {
+        this.exchange = exchange;
+        this.exchangeId = id;
+        this.importReader = exchange.newReader(id);
+    }
+    
+    /**
+     * Make the running call to solve, and any later one until {@link #clearInterrupt()}, return
+     * false as soon as possible without deciding satisfiability. Safe to call from any thread.
+     */
+    public void interrupt() {
+        interrupted = true;
+    }
+    
+    public void clearInterrupt() {
+        interrupted = false;
+    }
+    
+    /**
+     * Check if solve was interrupted, in which case its result means nothing.
+     */
+    public boolean isInterrupted() {
+        return interrupted;
     }
     
     /**
-     * Solve the SAT problem using CDCL algorithm.
+     * Run the CDCL search from level 0. Returns false if the clauses are unsatisfiable, or
+     * unsatisfiable under the assumptions, in which case failedAssumptions is filled.
      */
-    public boolean solve() {
-        graph.reset();
+    private boolean search() {
+        if (!initialized && !initialize()) {
+            return false;
+        }
         
         while (true) {
+            if (interrupted) {
+                return false;
+            }
+            
             // Unit propagation
-            Set<Long> conflictClause = unitPropagate();
+            int conflictClause = unitPropagate();
             
-            if (conflictClause != null) {
+            if (conflictClause != ClauseArena.NO_CLAUSE) {
                 // Conflict detected
+                stats.conflicts++;
+                
+                // Everything below the conflict level was consistent
+                graph.updateTargetPhase(graph.getTrailStart(graph.getCurrentLevel()));
+                
+                // With levels out of order the conflict may lie below the current level
+                if (chronological && backtrackToConflictLevel(conflictClause)) {
+                    continue;
+                }
                 if (graph.getCurrentLevel() == 0) {
                     // Conflict at level 0 means UNSAT
                     return false;
                 }
                 
                 // Conflict analysis and learning
-                Set<Long> learnedClause = analyzeConflict(conflictClause);
-                int backtrackLevel = computeBacktrackLevel(learnedClause);
-                
-                // Add learned clause
-                clauses.add(learnedClause);
+                analyzeConflict(conflictClause);
+                minimize(learnedClause);
+                int backtrackLevel = placeBacktrackLiteral(learnedClause);
+                int jump = graph.getCurrentLevel() - backtrackLevel;
+                if (chronological && jump > config.getChronologicalThreshold()) {
+                    backtrackLevel = graph.getCurrentLevel() - 1;
+                    stats.chronologicalBacktracks++;
+                }
+                int[] learnedLits = learnedClause.array();
+                int learnedSize = learnedClause.size();
+                int lbd = computeLBD(learnedLits, 0, learnedSize);
+                vsids.decayActivities();
+                learnts.decayActivities();
+                if (restartPolicy != null) {
+                    restartPolicy.onConflict(lbd);
+                }
                 
                 // Backtrack
-                graph.backtrack(backtrackLevel);
+                backtrack(backtrackLevel);
+                
+                // Add learned clause; it is unit under the remaining assignment, at the level of
+                // its second literal
+                addLearnedClause(lbd);
                 
-                // If learned clause is unit, propagate it
-                if (learnedClause.size() == 1) {
-                    Long unitLit = learnedClause.iterator().next();
-                    graph.makeImplication(unitLit, learnedClause);
+                if (learnts.shouldReduce(stats.conflicts)) {
+                    reduceLearnedClauses();
                 }
             } else {
+                // Clauses of other solvers are imported at level 0, e.g. after a restart; the
+                // units among them are propagated first
+                if (importReader != null && graph.getCurrentLevel() == 0) {
+                    int trailSize = graph.getTrailSize();
+                    if (!importClauses()) {
+                        return false;
+                    }
+                    if (graph.getTrailSize() > trailSize) {
+                        continue;
+                    }
+                }
+                
+                // Assumptions are decided first, one level each; a level is opened without a
+                // decision for an assumption that already holds
+                if (graph.getCurrentLevel() < assumptions.size()) {
+                    int assumption = assumptions.get(graph.getCurrentLevel());
+                    int value = graph.value(assumption);
+                    if (value < 0) {
+                        analyzeFinal(assumption);
+                        return false;
+                    }
+                    if (value > 0) {
+                        graph.newDecisionLevel();
+                    } else {
+                        stats.decisions++;
+                        graph.makeDecision(assumption);
+                    }
+                    continue;
+                }
+                
                 // No conflict, check if all variables are assigned
-                if (graph.getAssignedVariables().size() == allVariables.size()) {
+                if (graph.getTrailSize() == numSearchVars) {
+                    saveModel();
                     return true; // SAT
                 }
                 
-                // Make a decision
-                Long unassignedVar = findUnassignedVariable();
-                if (unassignedVar == null) {
+                // Restart from level 0, keeping learned clauses, activities and phases
+                if (restartPolicy != null && restartPolicy.shouldRestart()) {
+                    restart();
+                    if (subsumer != null && stats.conflicts >= nextSubsumption
+                        && !subsumeLearnedClauses()) {
+                        return false;
+                    }
+                    if (config.isVivification() && !vivifyClauses()) {
+                        return false;
+                    }
+                    continue;
+                }
+                
+                // Make a decision on the most active variable
+                int unassignedVar = vsids.pickBranchVariable(graph);
+                if (unassignedVar < 0) {
+                    saveModel();
                     return true; // All variables assigned
                 }
                 
-                // Try positive literal first
-                graph.makeDecision(unassignedVar);
+                // Reuse the phase the variable had before it was unassigned
+                stats.decisions++;
+                graph.makeDecision(graph.getPhaseLiteral(unassignedVar, config.isTargetPhase()));
             }
         }
     }
     
+    public SolverStats getStats() {
+        return stats;
+    }
+    
     /**
-     * Perform unit propagation.
-     * Returns a conflicting clause if conflict is detected, null otherwise.
+     * Get the model found by the last call to {@link #solve()}, mapping the variable ids of the
+     * input expression to their values, or null if no model was found.
      */
-    private Set<Long> unitPropagate() {
-        boolean changed = true;
-        
-        while (changed) {
-            changed = false;
+    public Map<Long, Boolean> getModel() {
+        if (model == null) {
+            return null;
+        }
+        Map<Long, Boolean> values = new HashMap<>();
+        for (int var = 0; var < numVars; var++) {
+            values.put(varIds[var], model[var]);
+        }
+        return values;
+    }
+    
+    /**
+     * Get the assumptions of the last call to {@link #solve(long...)} that made the clauses
+     * unsatisfiable, as signed variable ids; empty if the clauses are unsatisfiable without
+     * assumptions, or if the call found a model.
+     */
+    public Set<Long> getFailedAssumptions() {
+        Set<Long> failed = new HashSet<>();
+        for (int i = 0; i < failedAssumptions.size(); i++) {
+            int lit = failedAssumptions.get(i);
+            long id = varIds[Lit.var(lit)];
+            failed.add(Lit.isNegative(lit) ? -id : id);
+        }
+        return failed;
+    }
+    
+    /**
+     * Get the variable id in the input expression of a solver variable.
+     */
+    public long getVarId(int var) {
+        return varIds[var];
+    }
+    
+    /**
+     * Perform unit propagation over the watch lists of literals falsified by the trail.
+     * Binary clauses are propagated first, then ternary clauses, then the watched longer clauses.
+     * Returns a conflicting clause if conflict is detected, NO_CLAUSE otherwise.
+     */
+    private int unitPropagate() {
+        while (propagationHead < graph.getTrailSize()) {
+            int falseLit = Lit.neg(graph.getTrailLiteral(propagationHead++));
+            stats.propagations++;
+            
+            int conflict = propagateBinary(falseLit);
+            if (conflict == ClauseArena.NO_CLAUSE) {
+                conflict = propagateTernary(falseLit);
+            }
+            if (conflict != ClauseArena.NO_CLAUSE) {
+                propagationHead = graph.getTrailSize();
+                return conflict;
+            }
             
-            for (Set<Long> clause : clauses) {
-                Long unitLit = findUnitLiteral(clause);
+            IntVec watchList = watches[falseLit];
+            int[] entries = watchList.array();
+            int[] memory = arena.memory();
+            
+            int i = 0, j = 0, n = watchList.size();
+            while (i < n) {
+                int cref = entries[i];
+                int blocker = entries[i + 1];
+                i += 2;
                 
-                if (unitLit != null) {
-                    long var = Math.abs(unitLit);
-                    
-                    // Check if already assigned with opposite value
-                    Long currentAssignment = graph.getAssignment(var);
-                    if (currentAssignment != null) {
-                        if (!currentAssignment.equals(unitLit)) {
-                            // Conflict detected
-                            return clause;
-                        }
-                        // Already satisfied, skip
-                        continue;
+                // Clause satisfied by its blocker, decided without touching the clause
+                if (graph.value(blocker) > 0) {
+                    stats.blockerHits++;
+                    entries[j++] = cref;
+                    entries[j++] = blocker;
+                    continue;
+                }
+                stats.clauseVisits++;
+                int start = arena.litsStart(cref);
+                int end = start + arena.size(cref);
+                
+                // Keep the falsified watch in position 1
+                if (memory[start] == falseLit) {
+                    memory[start] = memory[start + 1];
+                    memory[start + 1] = falseLit;
+                }
+                
+                // Clause already satisfied by the other watch, which becomes the blocker
+                int first = memory[start];
+                if (first != blocker && graph.value(first) > 0) {
+                    entries[j++] = cref;
+                    entries[j++] = first;
+                    continue;
+                }
+                
+                // Look for a non-false literal to watch instead
+                boolean moved = false;
+                for (int k = start + 2; k < end; k++) {
+                    if (graph.value(memory[k]) >= 0) {
+                        memory[start + 1] = memory[k];
+                        memory[k] = falseLit;
+                        watches[memory[start + 1]].push(cref);
+                        watches[memory[start + 1]].push(first);
+                        moved = true;
+                        break;
                     }
-                    
-                    // Make implication
-                    graph.makeImplication(unitLit, clause);
-                    changed = true;
-                } else {
-                    // Check if clause is falsified
-                    if (isClauseFalsified(clause)) {
-                        return clause; // Conflict
+                }
+                if (moved) {
+                    continue;
+                }
+                
+                // Clause is unit or falsified under the current assignment
+                entries[j++] = cref;
+                entries[j++] = first;
+                if (!enqueue(first, cref)) {
+                    while (i < n) {
+                        entries[j++] = entries[i++];
                     }
+                    watchList.shrink(j);
+                    propagationHead = graph.getTrailSize();
+                    return cref; // Conflict
                 }
             }
+            watchList.shrink(j);
         }
         
-        return null; // No conflict
+        return ClauseArena.NO_CLAUSE; // No conflict
     }
     
     /**
-     * Find a unit literal in a clause (exactly one unassigned literal).
+     * Propagate the binary clauses containing a falsified literal.
      */
-    private Long findUnitLiteral(Set<Long> clause) {
-        Long unitLit = null;
-        int unassignedCount = 0;
-        
-        for (Long lit : clause) {
-            long var = Math.abs(lit);
-            Long assignment = graph.getAssignment(var);
-            
-            if (assignment == null) {
-                // Unassigned
-                unassignedCount++;
-                if (unassignedCount > 1) {
-                    return null; // Not a unit clause
-                }
-                unitLit = lit;
-            } else if (assignment.equals(lit)) {
-                // Clause is satisfied
-                return null;
+    private int propagateBinary(int falseLit) {
+        IntVec list = binaryWatches[falseLit];
+        int[] entries = list.array();
+        for (int i = 0; i < list.size(); i += 2) {
+            int other = entries[i];
+            int value = graph.value(other);
+            if (value == 0 && chronological) {
+                int level = graph.getDecisionLevel(Lit.var(falseLit));
+                graph.makeBinaryImplication(other, falseLit, level);
+            } else if (value == 0) {
+                graph.makeBinaryImplication(other, falseLit);
+            } else if (value < 0) {
+                return entries[i + 1];
             }
-            // Otherwise, literal is falsified, continue
         }
-        
-        return (unassignedCount == 1) ? unitLit : null;
+        return ClauseArena.NO_CLAUSE;
     }
     
     /**
-     * Check if a clause is falsified (all literals are false).
+     * Propagate the ternary clauses containing a falsified literal from their inline literals.
      */
-    private boolean isClauseFalsified(Set<Long> clause) {
-        for (Long lit : clause) {
-            long var = Math.abs(lit);
-            Long assignment = graph.getAssignment(var);
-            
-            if (assignment == null) {
-                // Has unassigned literal, not falsified
+    private int propagateTernary(int falseLit) {
+        IntVec list = ternaryWatches[falseLit];
+        int[] entries = list.array();
+        for (int i = 0; i < list.size(); i += 3) {
+            int a = entries[i];
+            int b = entries[i + 1];
+            int valueA = graph.value(a);
+            int valueB = graph.value(b);
+            if (valueA > 0 || valueB > 0 || (valueA == 0 && valueB == 0)) {
+                continue;
+            }
+            if (valueA < 0 && valueB < 0) {
+                return entries[i + 2];
+            }
+            int implied = valueA == 0 ? a : b;
+            if (chronological) {
+                int level = Math.max(graph.getDecisionLevel(Lit.var(falseLit)),
+                                     graph.getDecisionLevel(Lit.var(valueA == 0 ? b : a)));
+                graph.makeImplication(implied, entries[i + 2], level);
+            } else {
+                graph.makeImplication(implied, entries[i + 2]);
+            }
+        }
+        return ClauseArena.NO_CLAUSE;
+    }
+    
+    /**
+     * Store the clause in learnedClause as a learned clause and assert its first literal, which
+     * must be unit under the current assignment, at the level of its second literal.
+     */
+    private void addLearnedClause(int lbd) {
+        int[] lits = learnedClause.array();
+        int size = learnedClause.size();
+        int cref = arena.alloc(lits, size, true);
+        learnts.add(cref, lbd);
+        if (size > 1) {
+            attachClause(cref);
+        }
+        if (exchange != null && lbd <= config.getShareMaxLbd() && size <= config.getShareMaxSize()
+            && firstShared(lits, size)) {
+            exchange.publish(exchangeId, lits, size, lbd);
+            stats.exportedClauses++;
+        }
+        int level = size > 1 ? graph.getDecisionLevel(Lit.var(lits[1])) : 0;
+        if (size == 2) {
+            graph.makeBinaryImplication(lits[0], lits[1], level);
+        } else {
+            graph.makeImplication(lits[0], cref, level);
+        }
+    }
+    
+    /**
+     * Assert the unit clauses at level 0 and probe, which the first search does.
+     * Returns false if the clauses were found to be unsatisfiable.
+     */
+    private boolean initialize() {
+        initialized = true;
+        for (int i = 0; i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            if (arena.size(cref) == 1 && !enqueue(arena.lit(cref, 0), cref)) {
                 return false;
             }
-            
-            if (assignment.equals(lit)) {
-                // Has satisfied literal, not falsified
+        }
+        return !config.isProbing() || probe();
+    }
+    
+    /**
+     * Add the clauses published by other solvers since the last import as learned clauses, at
+     * level 0. Clauses exported or imported before are skipped, as are clauses satisfied at
+     * level 0; literals false at level 0 are dropped, and a clause left with one literal asserts
+     * it. Returns false if a clause is false at level 0.
+     */
+    private boolean importClauses() {
+        ClauseExchange.SharedClause shared;
+        while ((shared = importReader.next()) != null) {
+            int[] lits = shared.getLits();
+            if (!firstShared(lits, lits.length)) {
+                stats.duplicateImports++;
+                continue;
+            }
+            if (importLits.length < lits.length) {
+                importLits = new int[lits.length];
+            }
+            int size = 0;
+            boolean satisfied = false;
+            for (int k = 0; k < lits.length && !satisfied; k++) {
+                int value = graph.value(lits[k]);
+                satisfied = value > 0;
+                if (value == 0) {
+                    importLits[size++] = lits[k];
+                }
+            }
+            if (satisfied) {
+                continue;
+            }
+            stats.importedClauses++;
+            if (size == 0) {
                 return false;
             }
+            int cref = arena.alloc(importLits, size, true);
+            learnts.add(cref, Math.min(shared.getLbd(), size));
+            if (size == 1) {
+                stats.usefulImports++;
+                graph.makeImplication(importLits[0], cref);
+            } else {
+                arena.setImported(cref, true);
+                attachClause(cref);
+            }
         }
-        
-        // All literals are falsified
         return true;
     }
     
     /**
-     * Analyze conflict and learn a new clause using First UIP strategy.
+     * Record a clause as exported or imported, returning false if it was before. Clauses are told
+     * apart by an order-independent hash of their literals; the record is cleared when it grows
+     * large, which only lets some duplicates through.
      */
-    private Set<Long> analyzeConflict(Set<Long> conflictClause) {
-        // The learned clause starts as the negation of the conflict clause
-        // In the conflict clause, all literals are false, so we negate them
-        Set<Long> learnedClause = new HashSet<>();
-        for (Long lit : conflictClause) {
-            learnedClause.add(-lit);
+    private boolean firstShared(int[] lits, int size) {
+        long sum = 0;
+        long xor = 0;
+        for (int k = 0; k < size; k++) {
+            long h = (lits[k] + 1) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 31;
+            sum += h;
+            xor ^= h * 0xBF58476D1CE4E5B9L;
         }
-        
-        // Count how many literals from current level are in the learned clause
-        int currentLevelCount = countLiteralsAtLevel(learnedClause, graph.getCurrentLevel());
-        
-        // Resolve until we have exactly one literal from current level (First UIP)
-        while (currentLevelCount > 1) {
-            // Find a literal at current level that has a reason (not a decision)
-            Long toResolve = null;
-            for (Long lit : learnedClause) {
-                long var = Math.abs(lit);
-                if (graph.getDecisionLevel(var) == graph.getCurrentLevel()) {
-                    Set<Long> reason = graph.getReason(var);
-                    if (reason != null) {
-                        // This is an implied literal, resolve with its reason
-                        toResolve = var;
-                        break;
-                    }
+        if (sharedClauses.size() >= 1 << 20) {
+            sharedClauses.clear();
+        }
+        return sharedClauses.add(sum ^ Long.rotateLeft(xor, 17) ^ size);
+    }
+    
+    /**
+     * Failed literal probing at level 0.
+     * Literals with outgoing binary implications are assigned one at a time and propagated, roots
+     * of the binary implication graph first. A literal whose propagation fails yields a unit by
+     * conflict analysis. Otherwise every literal implied through a clause with several literals
+     * false at the probe level gets a hyper-binary resolvent from the probed literal, and is not
+     * probed itself since it cannot fail. Stops after the configured number of propagations.
+     * Returns false if the clauses were found to be unsatisfiable.
+     */
+    private boolean probe() {
+        if (unitPropagate() != ClauseArena.NO_CLAUSE) {
+            return false;
+        }
+        IntVec candidates = new IntVec();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int lit = 0; lit < 2 * numVars; lit++) {
+                boolean hasOutgoing = !binaryWatches[Lit.neg(lit)].isEmpty();
+                boolean isRoot = binaryWatches[lit].isEmpty();
+                if (hasOutgoing && isRoot == (pass == 0)) {
+                    candidates.push(lit);
                 }
             }
-            
-            if (toResolve == null) {
-                // All remaining are decision variables, can't resolve further
-                break;
+        }
+        
+        boolean[] implied = new boolean[2 * numVars];
+        int[] binary = new int[2];
+        long limit = stats.propagations + config.getProbingBudget();
+        for (int i = 0; i < candidates.size() && stats.propagations < limit; i++) {
+            int lit = candidates.get(i);
+            if (graph.value(lit) != 0 || implied[lit]) {
+                continue;
             }
-            
-            // Get the assignment for this variable to determine which literal to remove
-            Long assignment = graph.getAssignment(toResolve);
-            if (assignment == null) {
-                break;
+            stats.probedLiterals++;
+            graph.makeDecision(lit);
+            int conflict = unitPropagate();
+            if (conflict != ClauseArena.NO_CLAUSE) {
+                // All other literals of the learned clause are false at level 0, so it is a unit
+                stats.failedLiterals++;
+                analyzeConflict(conflict);
+                backtrack(0);
+                addLearnedClause(1);
+                if (unitPropagate() != ClauseArena.NO_CLAUSE) {
+                    return false;
+                }
+                continue;
             }
             
-            // Remove the literal from learned clause
-            learnedClause.remove(assignment);
-            learnedClause.remove(-assignment);
-            
-            // Resolve with the reason clause
-            Set<Long> reasonClause = graph.getReason(toResolve);
-            
-            // Add all literals from reason clause (except the one we're resolving)
-            for (Long reasonLit : reasonClause) {
-                long reasonVar = Math.abs(reasonLit);
-                if (reasonVar != toResolve) {
-                    learnedClause.add(-reasonLit);
+            for (int k = graph.getTrailStart(1) + 1; k < graph.getTrailSize(); k++) {
+                int consequence = graph.getTrailLiteral(k);
+                implied[consequence] = true;
+                if (isHyperBinaryCandidate(consequence)) {
+                    binary[0] = consequence;
+                    binary[1] = Lit.neg(lit);
+                    int cref = arena.alloc(binary, 2, true);
+                    learnts.add(cref, 2);
+                    attachClause(cref);
+                    stats.hyperBinaryResolvents++;
                 }
             }
-            
-            // Recalculate count
-            currentLevelCount = countLiteralsAtLevel(learnedClause, graph.getCurrentLevel());
+            backtrack(0);
         }
-        
-        return learnedClause;
+        return true;
     }
     
     /**
-     * Count how many literals in a clause are at a specific decision level.
+     * Assign the literals of a cube, given as solver literals, one decision level each and
+     * propagate them, as the starting point of {@link #lookahead(int)}. The assignment is kept
+     * until the next call to this method or to solve. Returns false if propagation shows the
+     * clauses unsatisfiable under the cube.
      */
-    private int countLiteralsAtLevel(Set<Long> clause, int level) {
-        int count = 0;
-        for (Long lit : clause) {
-            long var = Math.abs(lit);
-            if (graph.getDecisionLevel(var) == level) {
-                count++;
+    boolean assumeCube(IntVec cube) {
+        backtrack(0);
+        if (!unsatisfiable && !initialized && !initialize()) {
+            unsatisfiable = true;
+        }
+        if (unsatisfiable || unitPropagate() != ClauseArena.NO_CLAUSE) {
+            unsatisfiable = true;
+            return false;
+        }
+        for (int i = 0; i < cube.size(); i++) {
+            int value = graph.value(cube.get(i));
+            if (value < 0) {
+                return false;
+            }
+            if (value == 0) {
+                graph.makeDecision(cube.get(i));
+                if (unitPropagate() != ClauseArena.NO_CLAUSE) {
+                    return false;
+                }
             }
         }
-        return count;
+        return true;
     }
     
     /**
-     * Compute the backtrack level from a learned clause.
+     * Number of variables assigned by deciding a literal on top of the cube assumed last and
+     * propagating it, the literal included, or -1 if that leads to a conflict. The assignment
+     * of the cube is restored afterwards.
      */
-    private int computeBacktrackLevel(Set<Long> learnedClause) {
-        if (learnedClause.size() <= 1) {
-            return 0;
-        }
-        
-        // Find the second highest decision level
-        List<Integer> levels = new ArrayList<>();
-        for (Long lit : learnedClause) {
-            int level = graph.getDecisionLevel(Math.abs(lit));
-            if (level >= 0) {
-                levels.add(level);
-            }
-        }
-        
-        if (levels.isEmpty()) {
-            return 0;
-        }
-        
-        Collections.sort(levels, Collections.reverseOrder());
-        
-        if (levels.size() == 1) {
-            return 0;
+    int lookahead(int lit) {
+        int value = graph.value(lit);
+        if (value != 0) {
+            return value > 0 ? 0 : -1;
         }
-        
-        return levels.get(1); // Second highest level
+        int level = graph.getCurrentLevel();
+        int before = graph.getTrailSize();
+        graph.makeDecision(lit);
+        boolean conflict = unitPropagate() != ClauseArena.NO_CLAUSE;
+        int assigned = conflict ? -1 : graph.getTrailSize() - before;
+        backtrack(level, false);
+        return assigned;
+    }
+    
+    /**
+     * Check if a variable is unassigned and may be decided, i.e. was not removed by preprocessing.
+     */
+    boolean isFree(int var) {
+        return !graph.isAssigned(var) && !isRemoved(var);
+    }
+    
+    /**
+     * Number of binary and ternary clauses containing a literal.
+     */
+    int shortClauseOccurrences(int lit) {
+        return binaryWatches[lit].size() / 2 + ternaryWatches[lit].size() / 3;
+    }
+    
+    int getNumVars() {
+        return numVars;
     }
     
     /**
-     * Find an unassigned variable.
+     * Check if a literal implied at level 1 was implied by a clause with at least two literals
+     * false at level 1, so that the binary clause from the decision to it is new.
      */
-    private Long findUnassignedVariable() {
-        for (Long var : allVariables) {
-            if (!graph.isAssigned(var)) {
-                return var;
+    private boolean isHyperBinaryCandidate(int lit) {
+        int reason = graph.getReason(Lit.var(lit));
+        if (ImplicationGraph.isBinaryReason(reason)) {
+            return false;
+        }
+        int count = 0;
+        for (int k = 0; k < arena.size(reason); k++) {
+            int other = arena.lit(reason, k);
+            if (other != lit && graph.getDecisionLevel(Lit.var(other)) == 1) {
+                count++;
             }
         }
-        return null;
+        return count >= 2;
+    }
+    
+    /**
+     * Record the current assignment as the model and extend it to the eliminated variables.
+     */
+    private void saveModel() {
+        model = new boolean[numVars];
+        for (int var = 0; var < numVars; var++) {
+            model[var] = graph.value(Lit.of(var, false)) > 0;
+        }
+        if (eliminator != null) {
+            eliminator.extendModel(model);
+        }
+        if (reducer != null) {
+            reducer.extendModel(model);
+        }
+    }
+    
+    /**
+     * Check whether a variable was eliminated or substituted by preprocessing.
+     */
+    private boolean isRemoved(int var) {
+        return var < preprocessedVars
+               && ((eliminator != null && eliminator.isEliminated(var))
+                   || (reducer != null && reducer.isSubstituted(var)));
+    }
+    
+    private void checkAddable() {
+        if (stats.eliminatedVars + stats.substitutedVars > 0) {
+            throw new IllegalStateException("Cannot add clauses after preprocessing removed "
+                                            + "variables");
+        }
+    }
+    
+    /**
+     * Make room for the variables added to varIndex since the last call. The per-variable arrays
+     * grow at least geometrically; the new variables are unassigned and branched on.
+     */
+    private void growVariables() {
+        int oldNumVars = numVars;
+        if (varIndex.size() == oldNumVars) {
+            return;
+        }
+        numVars = varIndex.size();
+        numSearchVars += numVars - oldNumVars;
+        stats.originalVars = numVars;
+        if (numVars > capacity) {
+            capacity = Math.max(numVars, 2 * capacity);
+            graph.grow(capacity);
+            vsids.grow(capacity);
+            if (subsumer != null) {
+                subsumer.grow(capacity);
+            }
+            varIds = Arrays.copyOf(varIds, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            levelStamps = Arrays.copyOf(levelStamps, Math.max(levelStamps.length, capacity + 1));
+            watches = growLists(watches, capacity, 4);
+            binaryWatches = growLists(binaryWatches, capacity, 2);
+            ternaryWatches = growLists(ternaryWatches, capacity, 3);
+        }
+        for (Map.Entry<Long, Integer> entry : varIndex.entrySet()) {
+            if (entry.getValue() >= oldNumVars) {
+                varIds[entry.getValue()] = entry.getKey();
+                maxVarId = Math.max(maxVarId, entry.getKey());
+            }
+        }
+        for (int var = oldNumVars; var < numVars; var++) {
+            vsids.include(var);
+        }
+    }
+    
+    private static IntVec[] growLists(IntVec[] lists, int capacity, int initialSize) {
+        IntVec[] grown = Arrays.copyOf(lists, 2 * capacity);
+        for (int lit = lists.length; lit < grown.length; lit++) {
+            grown[lit] = new IntVec(initialSize);
+        }
+        return grown;
+    }
+    
+    /**
+     * Add a clause allocated in the arena to the original clauses, at level 0. Duplicate literals
+     * and literals false at level 0 are removed, and tautologies and clauses satisfied at level 0
+     * are dropped. A unit is asserted and propagated right away; a conflict, or an empty clause,
+     * makes the clauses unsatisfiable.
+     */
+    private void addOriginal(int cref) {
+        stats.originalClauses++;
+        int size = arena.size(cref);
+        int kept = 0;
+        boolean satisfied = false;
+        
+        // Marks in seen hold the polarity of the kept literal of a variable: 1 positive, 2 negative
+        for (int k = 0; k < size && !satisfied; k++) {
+            int lit = arena.lit(cref, k);
+            int var = Lit.var(lit);
+            byte polarity = Lit.isNegative(lit) ? (byte) 2 : (byte) 1;
+            satisfied = graph.value(lit) > 0 || seen[var] == 3 - polarity;
+            if (!satisfied && graph.value(lit) == 0 && seen[var] == 0) {
+                seen[var] = polarity;
+                arena.setLit(cref, kept++, lit);
+            }
+        }
+        for (int k = 0; k < kept; k++) {
+            seen[Lit.var(arena.lit(cref, k))] = 0;
+        }
+        if (satisfied || kept == 0) {
+            arena.free(cref);
+            unsatisfiable = !satisfied;
+            return;
+        }
+        arena.shrink(cref, kept);
+        clauses.push(cref);
+        stats.remainingClauses++;
+        if (kept > 1) {
+            attachClause(cref);
+            return;
+        }
+        graph.makeImplication(arena.lit(cref, 0), cref);
+        unsatisfiable = unitPropagate() != ClauseArena.NO_CLAUSE;
+    }
+    
+    /**
+     * Collect into failedAssumptions a false assumption and the assumptions it was falsified by:
+     * the decisions reached from it backwards through the reasons of the implication graph, all of
+     * which are assumptions since they are decided first.
+     */
+    private void analyzeFinal(int assumption) {
+        failedAssumptions.clear();
+        failedAssumptions.push(assumption);
+        if (graph.getDecisionLevel(Lit.var(assumption)) == 0) {
+            return;
+        }
+        seen[Lit.var(assumption)] = SEEN_IN_CLAUSE;
+        for (int i = graph.getTrailSize() - 1; i >= graph.getTrailStart(1); i--) {
+            int lit = graph.getTrailLiteral(i);
+            int var = Lit.var(lit);
+            if (seen[var] == 0) {
+                continue;
+            }
+            seen[var] = 0;
+            int reason = graph.getReason(var);
+            if (reason == ClauseArena.NO_CLAUSE) {
+                failedAssumptions.push(lit);
+            } else if (ImplicationGraph.isBinaryReason(reason)) {
+                markAntecedent(ImplicationGraph.binaryReasonLiteral(reason));
+            } else {
+                for (int k = 0; k < arena.size(reason); k++) {
+                    if (arena.lit(reason, k) != lit) {
+                        markAntecedent(arena.lit(reason, k));
+                    }
+                }
+            }
+        }
+    }
+    
+    private void markAntecedent(int lit) {
+        if (graph.getDecisionLevel(Lit.var(lit)) > 0) {
+            seen[Lit.var(lit)] = SEEN_IN_CLAUSE;
+        }
+    }
+    
+    /**
+     * Undo all assignments above a level and return their variables to the decision heap.
+     */
+    private void backtrack(int level) {
+        backtrack(level, true);
+    }
+    
+    private void backtrack(int level, boolean savePhases) {
+        if (level >= graph.getCurrentLevel()) {
+            return;
+        }
+        int start = graph.getTrailStart(level + 1);
+        for (int i = start; i < graph.getTrailSize(); i++) {
+            int var = Lit.var(graph.getTrailLiteral(i));
+            if (graph.getDecisionLevel(var) > level) {
+                vsids.onUnassign(var);
+            }
+        }
+        graph.backtrack(level, savePhases);
+        
+        // Literals kept from the undone part of the trail are propagated again
+        propagationHead = Math.min(propagationHead, start);
+    }
+    
+    /**
+     * Backtrack to the highest level among the literals of a conflicting clause, whose literals
+     * at the two highest levels are moved into the watched positions first. If a single literal
+     * is at that level, the clause is an implication missed when the trail held levels out of
+     * order; the literal is then backtracked one level further and assigned by the clause.
+     * Returns true in that case, and false if the conflict is to be analyzed.
+     */
+    private boolean backtrackToConflictLevel(int cref) {
+        int size = arena.size(cref);
+        watchHighestLevels(cref);
+        int conflictLevel = graph.getDecisionLevel(Lit.var(arena.lit(cref, 0)));
+        int count = 0;
+        int secondLevel = 0;
+        for (int k = 0; k < size; k++) {
+            int level = graph.getDecisionLevel(Lit.var(arena.lit(cref, k)));
+            if (level == conflictLevel) {
+                count++;
+            } else {
+                secondLevel = Math.max(secondLevel, level);
+            }
+        }
+        if (count > 1 || conflictLevel == 0) {
+            backtrack(conflictLevel);
+            return false;
+        }
+        
+        stats.missedImplications++;
+        backtrack(conflictLevel - 1);
+        int lit = arena.lit(cref, 0);
+        if (size == 2) {
+            graph.makeBinaryImplication(lit, arena.lit(cref, 1), secondLevel);
+        } else {
+            graph.makeImplication(lit, cref, secondLevel);
+        }
+        return true;
+    }
+    
+    /**
+     * Move the literals of a false clause with the two highest levels into positions 0 and 1,
+     * which are watched if it is a long clause, so that backtracking below the higher of the two
+     * unassigns a watch.
+     */
+    private void watchHighestLevels(int cref) {
+        int size = arena.size(cref);
+        for (int w = 0; w < 2; w++) {
+            int best = w;
+            for (int k = w + 1; k < size; k++) {
+                if (graph.getDecisionLevel(Lit.var(arena.lit(cref, k)))
+                    > graph.getDecisionLevel(Lit.var(arena.lit(cref, best)))) {
+                    best = k;
+                }
+            }
+            if (best == w) {
+                continue;
+            }
+            int lit = arena.lit(cref, best);
+            int replaced = arena.lit(cref, w);
+            arena.setLit(cref, w, lit);
+            arena.setLit(cref, best, replaced);
+            if (size > 3 && best > 1) {
+                unwatch(replaced, cref);
+                watches[lit].push(cref);
+                watches[lit].push(arena.lit(cref, 1 - w));
+            }
+        }
+    }
+    
+    /**
+     * Remove the watch of a long clause from the watch list of a literal.
+     */
+    private void unwatch(int lit, int cref) {
+        IntVec list = watches[lit];
+        int[] entries = list.array();
+        for (int i = 0; i < list.size(); i += 2) {
+            if (entries[i] == cref) {
+                entries[i] = entries[list.size() - 2];
+                entries[i + 1] = entries[list.size() - 1];
+                list.shrink(list.size() - 2);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Backtrack to level 0 and start a new target trail.
+     */
+    private void restart() {
+        stats.restarts++;
+        backtrack(0);
+        graph.resetTargetTrailSize();
+        restartPolicy.onRestart();
+    }
+    
+    /**
+     * Delete the least useful learned clauses, drop their watches and compact the arena
+     * once deleted clauses take up a significant part of it.
+     */
+    private void reduceLearnedClauses() {
+        int deleted = learnts.reduce(this::isLocked);
+        stats.reductions++;
+        stats.deletedClauses += deleted;
+        if (deleted > 0) {
+            collectGarbage();
+        }
+    }
+    
+    /**
+     * Remove learned clauses subsumed by other clauses and strengthen learned clauses by
+     * self-subsuming resolution. Runs at level 0 after a restart; a strengthened clause is replaced
+     * by a copy without its literals false at level 0, or dropped if it is satisfied there.
+     * Returns false if the empty clause was derived.
+     */
+    private boolean subsumeLearnedClauses() {
+        nextSubsumption = stats.conflicts + config.getSubsumeInterval();
+        IntVec candidates = new IntVec(learnts.size());
+        learnts.collect(candidates);
+        IntVec strengthened = new IntVec();
+        if (!subsumer.run(candidates, clauses, this::isLocked, strengthened,
+                          config.getSubsumptionBudget())) {
+            return false;
+        }
+        stats.subsumedClauses = subsumer.getSubsumed();
+        stats.strengthenedClauses = subsumer.getStrengthened();
+        
+        int[] lits = new int[8];
+        for (int i = 0; i < strengthened.size(); i++) {
+            int cref = strengthened.get(i);
+            int size = arena.size(cref);
+            if (lits.length < size) {
+                lits = new int[size];
+            }
+            int kept = 0;
+            boolean satisfied = false;
+            for (int k = 0; k < size && !satisfied; k++) {
+                int lit = arena.lit(cref, k);
+                satisfied = graph.value(lit) > 0;
+                if (graph.value(lit) == 0) {
+                    lits[kept++] = lit;
+                }
+            }
+            int lbd = arena.lbd(cref);
+            arena.free(cref);
+            if (satisfied) {
+                continue;
+            }
+            if (kept == 0) {
+                return false;
+            }
+            int copy = arena.alloc(lits, kept, true);
+            learnts.add(copy, Math.min(lbd, kept));
+            if (kept > 1) {
+                attachClause(copy);
+            } else {
+                graph.makeImplication(lits[0], copy);
+            }
+        }
+        learnts.removeDeleted();
+        collectGarbage();
+        return true;
+    }
+    
+    /**
+     * Vivify clauses at level 0 after a restart: learned clauses of the core and mid tiers, lowest
+     * LBD first, then original clauses if enabled. Every clause is vivified once, as long as the
+     * propagation budget of the restart lasts.
+     * Returns false if the clauses were found to be unsatisfiable.
+     */
+    private boolean vivifyClauses() {
+        if (unitPropagate() != ClauseArena.NO_CLAUSE) {
+            return false;
+        }
+        IntVec candidates = new IntVec();
+        learnts.collect(candidates);
+        int j = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int cref = candidates.get(i);
+            if (arena.size(cref) > 2 && !arena.isVivified(cref)
+                && arena.lbd(cref) <= config.getMidLbd()) {
+                candidates.set(j++, cref);
+            }
+        }
+        candidates.shrink(j);
+        if (candidates.isEmpty() && !config.isVivifyOriginals()) {
+            return true;
+        }
+        List<Integer> byLbd = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            byLbd.add(candidates.get(i));
+        }
+        byLbd.sort(Comparator.comparingInt(arena::lbd));
+        
+        long changed = stats.vivifyStrengthened + stats.vivifyRemoved;
+        long searched = stats.propagations - lastVivification;
+        long limit = stats.propagations + (long) (searched * config.getVivificationEffort());
+        for (int i = 0; i < byLbd.size() && stats.propagations < limit; i++) {
+            int cref = byLbd.get(i);
+            if (!arena.isDeleted(cref) && !isLocked(cref) && !vivifyClause(cref, -1)) {
+                return false;
+            }
+        }
+        for (int i = 0; config.isVivifyOriginals() && i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            if (stats.propagations >= limit) {
+                break;
+            }
+            if (arena.size(cref) > 2 && !arena.isVivified(cref) && !isLocked(cref)
+                && !vivifyClause(cref, i)) {
+                return false;
+            }
+        }
+        lastVivification = stats.propagations;
+        if (stats.vivifyStrengthened + stats.vivifyRemoved > changed) {
+            learnts.removeDeleted();
+            collectGarbage();
+        }
+        return true;
+    }
+    
+    /**
+     * Vivify one clause: assign the negations of its literals one by one at new levels and
+     * propagate. A literal that propagation makes false is dropped, and the clause is cut short
+     * at a literal that becomes true or at a conflict; in each case the remaining literals form a
+     * clause implied by the current clauses that subsumes the vivified one. A learned clause whose
+     * literal became true through another clause, including an inline binary reason, is redundant
+     * and removed.
+     * The clause is replaced by a copy if it was strengthened; index is its position among the
+     * original clauses, or -1 for a learned clause. A removed or replaced clause is detached
+     * right away, so propagation never uses it for the rest of the pass.
+     * Returns false if the clauses were found to be unsatisfiable.
+     */
+    private boolean vivifyClause(int cref, int index) {
+        arena.setVivified(cref);
+        stats.vivifiedClauses++;
+        int size = arena.size(cref);
+        if (vivifyLits.length < size) {
+            vivifyLits = new int[size];
+        }
+        // Propagation may reorder the literals of the clause itself
+        for (int k = 0; k < size; k++) {
+            int lit = arena.lit(cref, k);
+            vivifyLits[k] = lit;
+            if (graph.value(lit) > 0 && graph.getDecisionLevel(Lit.var(lit)) == 0) {
+                return true; // Satisfied at level 0
+            }
+        }
+        
+        vivifyKept.clear();
+        boolean redundant = false;
+        for (int k = 0; k < size; k++) {
+            int lit = vivifyLits[k];
+            int value = graph.value(lit);
+            if (value > 0) {
+                int reason = graph.getReason(Lit.var(lit));
+                redundant = reason != cref && reason != ClauseArena.NO_CLAUSE;
+                vivifyKept.push(lit);
+                break;
+            }
+            if (value < 0) {
+                continue;
+            }
+            vivifyKept.push(lit);
+            if (k == size - 1) {
+                break;
+            }
+            graph.makeDecision(Lit.neg(lit));
+            if (unitPropagate() != ClauseArena.NO_CLAUSE) {
+                break;
+            }
+        }
+        backtrack(0, false);
+        
+        if (redundant && arena.isLearnt(cref)) {
+            detachClause(cref);
+            arena.free(cref);
+            stats.vivifyRemoved++;
+            return true;
+        }
+        int kept = vivifyKept.size();
+        if (kept == size) {
+            return true;
+        }
+        if (kept == 0) {
+            return false;
+        }
+        stats.vivifyStrengthened++;
+        int copy = arena.alloc(vivifyKept.array(), kept, arena.isLearnt(cref));
+        if (index < 0) {
+            learnts.add(copy, Math.min(arena.lbd(cref), kept));
+        } else {
+            clauses.set(index, copy);
+        }
+        arena.setVivified(copy);
+        detachClause(cref);
+        arena.free(cref);
+        if (kept > 1) {
+            attachClause(copy);
+            return true;
+        }
+        graph.makeImplication(vivifyKept.get(0), copy);
+        return unitPropagate() == ClauseArena.NO_CLAUSE;
+    }
+    
+    /**
+     * Drop deleted clauses from the watch lists and compact the arena once deleted clauses take
+     * up a significant part of it.
+     */
+    private void collectGarbage() {
+        removeDeleted(watches, 2, 0);
+        removeDeleted(binaryWatches, 2, 1);
+        removeDeleted(ternaryWatches, 3, 2);
+        if (arena.wastedWords() > arena.usedWords() / 4) {
+            int[] forwarding = arena.compact();
+            for (int i = 0; i < clauses.size(); i++) {
+                clauses.set(i, forwarding[clauses.get(i)]);
+            }
+            learnts.relocate(forwarding);
+            relocate(watches, 2, 0, forwarding);
+            relocate(binaryWatches, 2, 1, forwarding);
+            relocate(ternaryWatches, 3, 2, forwarding);
+            graph.relocateReasons(forwarding);
+        }
+    }
+    
+    /**
+     * Drop the entries of deleted clauses from lists of fixed-size entries, where the clause
+     * reference is at the given offset within each entry.
+     */
+    private void removeDeleted(IntVec[] lists, int entrySize, int crefOffset) {
+        for (IntVec list : lists) {
+            int[] entries = list.array();
+            int j = 0;
+            for (int i = 0; i < list.size(); i += entrySize) {
+                if (!arena.isDeleted(entries[i + crefOffset])) {
+                    System.arraycopy(entries, i, entries, j, entrySize);
+                    j += entrySize;
+                }
+            }
+            list.shrink(j);
+        }
+    }
+    
+    /**
+     * Translate the clause references in lists of fixed-size entries after compaction.
+     */
+    private static void relocate(IntVec[] lists, int entrySize, int crefOffset, int[] forwarding) {
+        for (IntVec list : lists) {
+            int[] entries = list.array();
+            for (int i = crefOffset; i < list.size(); i += entrySize) {
+                entries[i] = forwarding[entries[i]];
+            }
+        }
+    }
+    
+    /**
+     * Check if a clause is the reason of a current assignment and therefore cannot be deleted.
+     * The implied literal of a watched reason clause is always its first literal; ternary clauses
+     * are propagated without reordering, so all their literals are checked.
+     */
+    private boolean isLocked(int cref) {
+        int checked = arena.size(cref) == 3 ? 3 : 1;
+        for (int k = 0; k < checked; k++) {
+            int lit = arena.lit(cref, k);
+            if (graph.value(lit) > 0 && graph.getReason(Lit.var(lit)) == cref) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Compute the literal block distance of the literals lits[from..to): the number of
+     * distinct decision levels among them.
+     */
+    private int computeLBD(int[] lits, int from, int to) {
+        stamp++;
+        int lbd = 0;
+        for (int i = from; i < to; i++) {
+            int level = graph.getDecisionLevel(Lit.var(lits[i]));
+            if (levelStamps[level] != stamp) {
+                levelStamps[level] = stamp;
+                lbd++;
+            }
+        }
+        return lbd;
+    }
+    
+    /**
+     * Assign a literal implied by a clause unless it is already assigned.
+     * Returns false if the literal is already false.
+     */
+    private boolean enqueue(int lit, int reason) {
+        int value = graph.value(lit);
+        if (value != 0) {
+            return value > 0;
+        }
+        if (chronological) {
+            graph.makeImplication(lit, reason, implicationLevel(reason));
+        } else {
+            graph.makeImplication(lit, reason);
+        }
+        return true;
+    }
+    
+    /**
+     * Highest level among the false literals of a clause that implies its unassigned literal.
+     */
+    private int implicationLevel(int cref) {
+        int level = 0;
+        for (int k = 0; k < arena.size(cref); k++) {
+            level = Math.max(level, graph.getDecisionLevel(Lit.var(arena.lit(cref, k))));
+        }
+        return level;
+    }
+    
+    /**
+     * Register a clause in the binary or ternary lists of its literals, or, for longer clauses,
+     * its first two literals as its watches.
+     */
+    private void attachClause(int cref) {
+        int size = arena.size(cref);
+        if (size == 2) {
+            int a = arena.lit(cref, 0);
+            int b = arena.lit(cref, 1);
+            binaryWatches[a].push(b);
+            binaryWatches[a].push(cref);
+            binaryWatches[b].push(a);
+            binaryWatches[b].push(cref);
+        } else if (size == 3) {
+            for (int k = 0; k < 3; k++) {
+                IntVec list = ternaryWatches[arena.lit(cref, k)];
+                list.push(arena.lit(cref, (k + 1) % 3));
+                list.push(arena.lit(cref, (k + 2) % 3));
+                list.push(cref);
+            }
+        } else {
+            int a = arena.lit(cref, 0);
+            int b = arena.lit(cref, 1);
+            watches[a].push(cref);
+            watches[a].push(b);
+            watches[b].push(cref);
+            watches[b].push(a);
+        }
+    }
+    
+    /**
+     * Remove the entries of an attached clause from the watch lists of its watched literals,
+     * which for a watched clause are its first two literals. Clauses deleted in bulk are left to
+     * {@link #collectGarbage()} instead, which avoids a scan of the lists per clause.
+     */
+    private void detachClause(int cref) {
+        int size = arena.size(cref);
+        if (size == 2) {
+            removeEntry(binaryWatches[arena.lit(cref, 0)], 2, 1, cref);
+            removeEntry(binaryWatches[arena.lit(cref, 1)], 2, 1, cref);
+        } else if (size == 3) {
+            for (int k = 0; k < 3; k++) {
+                removeEntry(ternaryWatches[arena.lit(cref, k)], 3, 2, cref);
+            }
+        } else {
+            removeEntry(watches[arena.lit(cref, 0)], 2, 0, cref);
+            removeEntry(watches[arena.lit(cref, 1)], 2, 0, cref);
+        }
+    }
+    
+    /**
+     * Remove the entry of a clause from a list of fixed-size entries, keeping the order of the
+     * others.
+     */
+    private static void removeEntry(IntVec list, int entrySize, int crefOffset, int cref) {
+        int[] entries = list.array();
+        for (int i = 0; i < list.size(); i += entrySize) {
+            if (entries[i + crefOffset] == cref) {
+                System.arraycopy(entries, i + entrySize, entries, i, list.size() - i - entrySize);
+                list.shrink(list.size() - entrySize);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Analyze conflict and learn a new clause using First UIP strategy.
+     * Literals of the current level are resolved away in reverse trail order; a counter of the
+     * current-level literals still to be resolved detects the first UIP. The result is left in
+     * learnedClause with the asserting literal first, and the variables of its other literals
+     * remain marked in seen.
+     */
+    private void analyzeConflict(int conflictClause) {
+        int currentLevel = graph.getCurrentLevel();
+        learnedClause.clear();
+        learnedClause.push(-1); // Room for the asserting literal
+        
+        int pathCount = 0;
+        int resolvedLit = -1;
+        int index = graph.getTrailSize() - 1;
+        int cref = conflictClause;
+        
+        do {
+            if (ImplicationGraph.isBinaryReason(cref)) {
+                pathCount += analyzeLiteral(ImplicationGraph.binaryReasonLiteral(cref), currentLevel);
+            } else {
+                onClauseAnalyzed(cref);
+                int start = arena.litsStart(cref);
+                int end = start + arena.size(cref);
+                int[] memory = arena.memory();
+                for (int k = start; k < end; k++) {
+                    if (memory[k] != resolvedLit) {
+                        pathCount += analyzeLiteral(memory[k], currentLevel);
+                    }
+                }
+            }
+            
+            // Next marked literal of the current level on the trail, where literals of lower levels
+            // may be interleaved with it
+            int trailVar = Lit.var(graph.getTrailLiteral(index));
+            while (seen[trailVar] == 0 || graph.getDecisionLevel(trailVar) != currentLevel) {
+                trailVar = Lit.var(graph.getTrailLiteral(--index));
+            }
+            resolvedLit = graph.getTrailLiteral(index--);
+            int resolvedVar = Lit.var(resolvedLit);
+            seen[resolvedVar] = 0;
+            cref = graph.getReason(resolvedVar);
+            pathCount--;
+        } while (pathCount > 0);
+        
+        learnedClause.set(0, Lit.neg(resolvedLit));
+    }
+    
+    /**
+     * Add a false literal of a clause being resolved to the learned clause.
+     * Returns 1 if the literal is a new literal of the current level, which still has to be
+     * resolved away, and 0 otherwise.
+     */
+    private int analyzeLiteral(int lit, int currentLevel) {
+        int var = Lit.var(lit);
+        if (seen[var] != 0 || graph.getDecisionLevel(var) == 0) {
+            return 0;
+        }
+        seen[var] = SEEN_IN_CLAUSE;
+        vsids.bump(var);
+        if (graph.getDecisionLevel(var) == currentLevel) {
+            return 1;
+        }
+        learnedClause.push(lit);
+        return 0;
+    }
+    
+    /**
+     * Minimize the learned clause in place.
+     * A literal is dropped when it is implied by the other literals of the clause through the
+     * reasons recorded in the implication graph (recursive minimization). Literals whose
+     * complement is implied by the asserting literal through a binary clause are dropped too.
+     * Clears the marks left by conflict analysis.
+     */
+    private void minimize(IntVec lits) {
+        int length = lits.size();
+        stats.learnedLiterals += length;
+        
+        int asserting = lits.get(0);
+        int abstractLevels = 0;
+        for (int i = 1; i < length; i++) {
+            int var = Lit.var(lits.get(i));
+            toClear.push(var);
+            abstractLevels |= abstractLevel(var);
+        }
+        
+        int size = 1;
+        for (int i = 1; i < length; i++) {
+            int lit = lits.get(i);
+            int var = Lit.var(lit);
+            if (graph.getReason(var) == ClauseArena.NO_CLAUSE || !isRedundant(var, abstractLevels)) {
+                lits.set(size++, lit);
+            }
+        }
+        lits.shrink(size);
+        
+        // Binary clauses (asserting | x) with x true subsume the literal ~x by resolution
+        int removable = 0;
+        IntVec binaries = binaryWatches[asserting];
+        for (int i = 0; i < binaries.size(); i += 2) {
+            int other = binaries.get(i);
+            if (graph.value(other) > 0 && seen[Lit.var(other)] == SEEN_IN_CLAUSE
+                && Lit.var(other) != Lit.var(asserting)) {
+                seen[Lit.var(other)] = SEEN_REMOVABLE;
+                removable++;
+            }
+        }
+        if (removable > 0) {
+            int j = 1;
+            for (int k = 1; k < lits.size(); k++) {
+                if (seen[Lit.var(lits.get(k))] != SEEN_REMOVABLE) {
+                    lits.set(j++, lits.get(k));
+                }
+            }
+            lits.shrink(j);
+        }
+        
+        for (int i = 0; i < toClear.size(); i++) {
+            seen[toClear.get(i)] = 0;
+        }
+        toClear.clear();
+        
+        stats.minimizedLiterals += length - lits.size();
+    }
+    
+    /**
+     * Move the literal with the highest decision level after the asserting literal into
+     * position 1, where it is watched, and return its level as the backjump level.
+     */
+    private int placeBacktrackLiteral(IntVec lits) {
+        if (lits.size() == 1) {
+            return 0;
+        }
+        int maxIndex = 1;
+        int maxLevel = graph.getDecisionLevel(Lit.var(lits.get(1)));
+        for (int i = 2; i < lits.size(); i++) {
+            int level = graph.getDecisionLevel(Lit.var(lits.get(i)));
+            if (level > maxLevel) {
+                maxLevel = level;
+                maxIndex = i;
+            }
+        }
+        int tmp = lits.get(1);
+        lits.set(1, lits.get(maxIndex));
+        lits.set(maxIndex, tmp);
+        return maxLevel;
+    }
+    
+    /**
+     * Check if the literal of a variable in the learned clause is implied by the other literals,
+     * following reasons with an explicit stack. Variables at levels that do not occur in the clause
+     * (according to the abstract level bitmask) cannot be removed, which prunes the search early.
+     */
+    private boolean isRedundant(int var, int abstractLevels) {
+        int top = toClear.size();
+        minimizeStack.clear();
+        minimizeStack.push(var);
+        
+        while (!minimizeStack.isEmpty()) {
+            int implied = minimizeStack.pop();
+            int reason = graph.getReason(implied);
+            
+            // An inline binary reason has a single antecedent
+            if (ImplicationGraph.isBinaryReason(reason)) {
+                int other = ImplicationGraph.binaryReasonLiteral(reason);
+                if (!isRedundantAntecedent(other, abstractLevels, top)) {
+                    return false;
+                }
+                continue;
+            }
+            int start = arena.litsStart(reason);
+            int end = start + arena.size(reason);
+            int[] memory = arena.memory();
+            for (int k = start; k < end; k++) {
+                if (Lit.var(memory[k]) != implied
+                    && !isRedundantAntecedent(memory[k], abstractLevels, top)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Check one antecedent of an implied literal during redundancy search, queueing it when it has
+     * to be explored further. On failure the marks made by the attempt, from position top of
+     * toClear on, are undone.
+     */
+    private boolean isRedundantAntecedent(int lit, int abstractLevels, int top) {
+        int next = Lit.var(lit);
+        if (seen[next] != 0 || graph.getDecisionLevel(next) == 0) {
+            return true;
+        }
+        if (graph.getReason(next) != ClauseArena.NO_CLAUSE
+            && (abstractLevel(next) & abstractLevels) != 0) {
+            seen[next] = SEEN_REDUNDANT;
+            minimizeStack.push(next);
+            toClear.push(next);
+            return true;
+        }
+        // Undo the marks of this attempt
+        for (int i = top; i < toClear.size(); i++) {
+            seen[toClear.get(i)] = 0;
+        }
+        toClear.shrink(top);
+        return false;
+    }
+    
+    private int abstractLevel(int var) {
+        return 1 << (graph.getDecisionLevel(var) & 31);
+    }
+    
+    /**
+     * Bump a learned clause taking part in conflict analysis and refresh its LBD.
+     */
+    private void onClauseAnalyzed(int cref) {
+        if (arena.isImported(cref)) {
+            stats.usefulImports++;
+            arena.setImported(cref, false);
+        }
+        if (arena.isLearnt(cref)) {
+            int start = arena.litsStart(cref);
+            learnts.onUsed(cref, computeLBD(arena.memory(), start, start + arena.size(cref)));
+        }
     }
 }
@@ -5,16 +5,20 @@ import edu.utexas.cs.alr.ast.*;
 import java.util.*;
 
 /**
- * Utility class to convert CNF expressions to clause lists.
+ * Utility class to convert expressions to clauses in a {@link ClauseArena}, either CNF expressions
+ * as they are or arbitrary ones by Tseitin encoding.
  */
 public class CNFConverter {
     /**
-     * Convert a CNF expression to a list of clauses.
-     * Each clause is represented as a set of literals (positive for variables, negative for negated variables).
+     * Convert a CNF expression to clauses stored in the given arena.
+     * Literals use the dense {@link Lit} encoding; variables are numbered in order of first
+     * occurrence and varIndex receives the mapping from expression variable ids to solver variables.
+     * Returns the references of the stored clauses.
      */
-    public static List<Set<Long>> toClauses(Expr cnfExpr) {
-        List<Set<Long>> clauses = new ArrayList<>();
+    public static IntVec toClauses(Expr cnfExpr, ClauseArena arena, Map<Long, Integer> varIndex) {
+        IntVec clauses = new IntVec();
         Set<Long> vars = new HashSet<>();
+        int[] lits = new int[8];
         
         Stack<Expr> stack = new Stack<>();
         stack.push(cnfExpr);
@@ -37,21 +41,24 @@ public class CNFConverter {
                         throw new RuntimeException("Expr is not in CNF.");
                     }
                     VarExpr childVarExpr = (VarExpr) ((NegExpr) e).getExpr();
-                    Set<Long> negClause = new HashSet<>();
-                    negClause.add(-childVarExpr.getId());
-                    clauses.add(negClause);
-                    vars.add(childVarExpr.getId());
+                    lits[0] = toLit(-childVarExpr.getId(), varIndex);
+                    clauses.push(arena.alloc(lits, 1, false));
                     break;
                 case VAR:
                     VarExpr varExpr = (VarExpr) e;
-                    Set<Long> posClause = new HashSet<>();
-                    posClause.add(varExpr.getId());
-                    clauses.add(posClause);
-                    vars.add(varExpr.getId());
+                    lits[0] = toLit(varExpr.getId(), varIndex);
+                    clauses.push(arena.alloc(lits, 1, false));
                     break;
                 case OR:
                     Set<Long> clause = ExprUtils.getLiteralsForClause((OrExpr) e, vars);
-                    clauses.add(clause);
+                    if (clause.size() > lits.length) {
+                        lits = new int[clause.size()];
+                    }
+                    int size = 0;
+                    for (Long lit : clause) {
+                        lits[size++] = toLit(lit, varIndex);
+                    }
+                    clauses.push(arena.alloc(lits, size, false));
                     break;
                 default:
                     assert false;
@@ -60,4 +67,172 @@ public class CNFConverter {
         
         return clauses;
     }
+    
+    /**
+     * Convert an expression to clauses stored in the given arena, Tseitin encoding it if it is not
+     * in CNF already. Unlike {@link ExprUtils#toTseitin(Expr)}, the definitions of the auxiliary
+     * variables are written to the arena directly as literals, without building expressions for
+     * them: every AND, OR, IMPL and EQUIV node gets a variable, nodes shared in the DAG are encoded
+     * once, and negations take the negated literal of their operand.
+     * Auxiliary variables get ids from max(minAuxId, largest id in expr + 1) on; minAuxId must be
+     * larger than the ids in varIndex already. Returns the references of the stored clauses.
+     */
+    public static IntVec toTseitinClauses(Expr expr, long minAuxId, ClauseArena arena,
+                                          Map<Long, Integer> varIndex) {
+        if (ExprUtils.isCNF(expr)) {
+            return toClauses(expr, arena, varIndex);
+        }
+        return new TseitinClauses(arena, varIndex).encode(expr, minAuxId);
+    }
+    
+    /**
+     * Encode a signed expression literal, allocating a solver variable on first occurrence.
+     */
+    static int toLit(long lit, Map<Long, Integer> varIndex) {
+        Integer var = varIndex.get(Math.abs(lit));
+        if (var == null) {
+            var = varIndex.size();
+            varIndex.put(Math.abs(lit), var);
+        }
+        return Lit.of(var, lit < 0);
+    }
+    
+    /**
+     * State of one Tseitin conversion. Auxiliary variables are numbered as solver variables as
+     * they are defined, interleaved with the input variables, and only get their ids at the end,
+     * once the largest input id is known.
+     */
+    private static final class TseitinClauses implements TseitinGates.ClauseSink {
+        private final ClauseArena arena;
+        private final Map<Long, Integer> varIndex;
+        private final IntVec clauses = new IntVec();
+        
+        // Literal of every encoded node, and the auxiliary variables in order of definition
+        private final Map<Expr, Integer> literals = new IdentityHashMap<>();
+        private final IntVec auxVars = new IntVec();
+        private int nextVar;
+        private long maxId = 0;
+        
+        private final int[] lits = new int[3];
+        
+        TseitinClauses(ClauseArena arena, Map<Long, Integer> varIndex) {
+            this.arena = arena;
+            this.varIndex = varIndex;
+            this.nextVar = varIndex.size();
+        }
+        
+        /**
+         * Encode the nodes in post-order with an explicit stack, on which a node is pushed once
+         * before its operands to be defined after them, and assert the literal of the root.
+         */
+        IntVec encode(Expr root, long minAuxId) {
+            Expr[] stack = new Expr[64];
+            boolean[] operandsDone = new boolean[64];
+            int size = 0;
+            stack[size++] = root;
+            while (size > 0) {
+                Expr e = stack[--size];
+                boolean define = operandsDone[size];
+                operandsDone[size] = false;
+                if (literals.containsKey(e)) {
+                    continue;
+                }
+                if (e.getKind() == Expr.ExprKind.VAR) {
+                    literals.put(e, inputLit(((VarExpr) e).getId()));
+                    continue;
+                }
+                if (define) {
+                    literals.put(e, define(e));
+                    continue;
+                }
+                if (size + 3 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    operandsDone = Arrays.copyOf(operandsDone, stack.length);
+                }
+                operandsDone[size] = true;
+                stack[size++] = e;
+                if (e.getKind() == Expr.ExprKind.NEG) {
+                    stack[size++] = ((NegExpr) e).getExpr();
+                } else {
+                    stack[size++] = TseitinGates.operand(e, 1);
+                    stack[size++] = TseitinGates.operand(e, 0);
+                }
+            }
+            lits[0] = literals.get(root);
+            store(1);
+            
+            long firstAuxId = Math.max(minAuxId, maxId + 1);
+            for (int i = 0; i < auxVars.size(); i++) {
+                varIndex.put(firstAuxId + i, auxVars.get(i));
+            }
+            return clauses;
+        }
+        
+        private int inputLit(long id) {
+            Integer var = varIndex.get(id);
+            if (var == null) {
+                var = nextVar++;
+                varIndex.put(id, var);
+            }
+            maxId = Math.max(maxId, id);
+            return Lit.of(var, false);
+        }
+        
+        /**
+         * Get the literal of a node whose operands are encoded, adding the clauses that define
+         * its auxiliary variable.
+         */
+        private int define(Expr e) {
+            if (e.getKind() == Expr.ExprKind.NEG) {
+                return Lit.neg(literals.get(((NegExpr) e).getExpr()));
+            }
+            int a = literals.get(TseitinGates.operand(e, 0));
+            int b = literals.get(TseitinGates.operand(e, 1));
+            int x = Lit.of(nextVar, false);
+            auxVars.push(nextVar++);
+            TseitinGates.define(e.getKind(), x, a, b, this);
+            return x;
+        }
+        
+        @Override
+        public long neg(long lit) {
+            return Lit.neg((int) lit);
+        }
+        
+        @Override
+        public void clause(long first, long second) {
+            lits[0] = (int) first;
+            lits[1] = (int) second;
+            store(2);
+        }
+        
+        @Override
+        public void clause(long first, long second, long third) {
+            lits[0] = (int) first;
+            lits[1] = (int) second;
+            lits[2] = (int) third;
+            store(3);
+        }
+        
+        /**
+         * Store the clause of the first size literals of lits, without repeated literals; a
+         * tautology, where operands coincide up to sign, is dropped.
+         */
+        private void store(int size) {
+            int kept = 0;
+            for (int k = 0; k < size; k++) {
+                boolean repeated = false;
+                for (int j = 0; j < kept; j++) {
+                    if (lits[j] == Lit.neg(lits[k])) {
+                        return;
+                    }
+                    repeated |= lits[j] == lits[k];
+                }
+                if (!repeated) {
+                    lits[kept++] = lits[k];
+                }
+            }
+            clauses.push(arena.alloc(lits, kept, false));
+        }
+    }
 }
@@ -0,0 +1,238 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+
+/**
+ * Flat storage for clauses.
+ * All clauses live in one int array. A clause reference (cref) is the offset of its header word,
+ * which packs the clause size together with its flags; the literals follow the header.
+ * Learned clauses carry two more words after their literals: the LBD and the activity.
+ */
+public class ClauseArena {
+    public static final int NO_CLAUSE = -1;
+    
+    static final int HEADER_SIZE = 1;
+    
+    private static final int FLAG_BITS = 5;
+    private static final int LEARNT = 1;
+    private static final int DELETED = 2;
+    private static final int USED = 4;
+    private static final int VIVIFIED = 8;
+    private static final int IMPORTED = 16;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+    
+    private static final int LEARNT_EXTRA_WORDS = 2;
+    
+    private int[] memory;
+    private int top;
+    
+    // Words occupied by deleted clauses
+    private int wasted;
+    
+    public ClauseArena() {
+        this(1 << 10);
+    }
+    
+    public ClauseArena(int capacity) {
+        this.memory = new int[Math.max(capacity, HEADER_SIZE)];
+    }
+    
+    /**
+     * Create an arena holding a copy of the clauses of another one, under the same references.
+     */
+    public ClauseArena(ClauseArena other) {
+        this.memory = Arrays.copyOf(other.memory, Math.max(other.top, HEADER_SIZE));
+        this.top = other.top;
+        this.wasted = other.wasted;
+    }
+    
+    /**
+     * Store a clause made of the first size literals of lits and return its reference.
+     */
+    public int alloc(int[] lits, int size, boolean learnt) {
+        int words = HEADER_SIZE + size + (learnt ? LEARNT_EXTRA_WORDS : 0);
+        ensureCapacity(top + words);
+        int cref = top;
+        memory[cref] = (size << FLAG_BITS) | (learnt ? LEARNT : 0);
+        System.arraycopy(lits, 0, memory, cref + HEADER_SIZE, size);
+        if (learnt) {
+            memory[cref + HEADER_SIZE + size] = size;
+            memory[cref + HEADER_SIZE + size + 1] = Float.floatToRawIntBits(0f);
+        }
+        top += words;
+        return cref;
+    }
+    
+    public int size(int cref) {
+        return memory[cref] >>> FLAG_BITS;
+    }
+    
+    public boolean isLearnt(int cref) {
+        return (memory[cref] & LEARNT) != 0;
+    }
+    
+    public boolean isDeleted(int cref) {
+        return (memory[cref] & DELETED) != 0;
+    }
+    
+    /**
+     * Mark a clause as deleted; its words stay allocated until the arena is compacted.
+     */
+    public void free(int cref) {
+        if (!isDeleted(cref)) {
+            memory[cref] |= DELETED;
+            wasted += words(cref);
+        }
+    }
+    
+    /**
+     * Check if a learned clause took part in conflict analysis since its flag was last cleared.
+     */
+    public boolean isUsed(int cref) {
+        return (memory[cref] & USED) != 0;
+    }
+    
+    public void setUsed(int cref, boolean used) {
+        memory[cref] = used ? memory[cref] | USED : memory[cref] & ~USED;
+    }
+    
+    /**
+     * Check if a clause went through vivification already.
+     */
+    public boolean isVivified(int cref) {
+        return (memory[cref] & VIVIFIED) != 0;
+    }
+    
+    public void setVivified(int cref) {
+        memory[cref] |= VIVIFIED;
+    }
+    
+    /**
+     * Check if a learned clause was imported from another solver and has not taken part in
+     * conflict analysis since.
+     */
+    public boolean isImported(int cref) {
+        return (memory[cref] & IMPORTED) != 0;
+    }
+    
+    public void setImported(int cref, boolean imported) {
+        memory[cref] = imported ? memory[cref] | IMPORTED : memory[cref] & ~IMPORTED;
+    }
+    
+    /**
+     * Get the literal block distance of a learned clause.
+     */
+    public int lbd(int cref) {
+        return memory[cref + HEADER_SIZE + size(cref)];
+    }
+    
+    public void setLbd(int cref, int lbd) {
+        memory[cref + HEADER_SIZE + size(cref)] = lbd;
+    }
+    
+    /**
+     * Get the activity of a learned clause.
+     */
+    public float activity(int cref) {
+        return Float.intBitsToFloat(memory[cref + HEADER_SIZE + size(cref) + 1]);
+    }
+    
+    public void setActivity(int cref, float activity) {
+        memory[cref + HEADER_SIZE + size(cref) + 1] = Float.floatToRawIntBits(activity);
+    }
+    
+    public int lit(int cref, int index) {
+        return memory[cref + HEADER_SIZE + index];
+    }
+    
+    public void setLit(int cref, int index, int lit) {
+        memory[cref + HEADER_SIZE + index] = lit;
+    }
+    
+    /**
+     * Drop the literals of a clause from position newSize on. The freed words are covered by a
+     * deleted filler clause, so that the arena can still be walked clause by clause.
+     */
+    public void shrink(int cref, int newSize) {
+        int oldSize = size(cref);
+        if (newSize >= oldSize) {
+            return;
+        }
+        int extra = isLearnt(cref) ? LEARNT_EXTRA_WORDS : 0;
+        int oldEnd = cref + HEADER_SIZE + oldSize;
+        int newEnd = cref + HEADER_SIZE + newSize;
+        System.arraycopy(memory, oldEnd, memory, newEnd, extra);
+        memory[cref] = (newSize << FLAG_BITS) | (memory[cref] & FLAG_MASK);
+        int gap = oldSize - newSize;
+        memory[newEnd + extra] = ((gap - HEADER_SIZE) << FLAG_BITS) | DELETED;
+        wasted += gap;
+    }
+    
+    /**
+     * Offset of the first literal of a clause in {@link #memory()}.
+     */
+    public int litsStart(int cref) {
+        return cref + HEADER_SIZE;
+    }
+    
+    /**
+     * Backing array, for loops that scan literals directly.
+     * The array is replaced when the arena grows, so it must not be cached across allocations.
+     */
+    public int[] memory() {
+        return memory;
+    }
+    
+    /**
+     * Number of words in use, including deleted clauses.
+     */
+    public int usedWords() {
+        return top;
+    }
+    
+    public int wastedWords() {
+        return wasted;
+    }
+    
+    /**
+     * Move all clauses that are not deleted into fresh storage without gaps.
+     * Returns the previous backing array in which the header word of every clause has been
+     * replaced by its new reference, or NO_CLAUSE if the clause was deleted, so that holders of
+     * references can translate them with {@code forwarding[cref]}.
+     */
+    public int[] compact() {
+        int[] old = memory;
+        int[] fresh = new int[Math.max(top - wasted, HEADER_SIZE)];
+        int newTop = 0;
+        int cref = 0;
+        while (cref < top) {
+            int words = words(cref);
+            if (isDeleted(cref)) {
+                old[cref] = NO_CLAUSE;
+            } else {
+                System.arraycopy(old, cref, fresh, newTop, words);
+                old[cref] = newTop;
+                newTop += words;
+            }
+            cref += words;
+        }
+        memory = fresh;
+        top = newTop;
+        wasted = 0;
+        return old;
+    }
+    
+    private int words(int cref) {
+        return HEADER_SIZE + size(cref) + (isLearnt(cref) ? LEARNT_EXTRA_WORDS : 0);
+    }
+    
+    private void ensureCapacity(int words) {
+        if (words > memory.length) {
+            int newLength = memory.length;
+            while (newLength < words) {
+                newLength += (newLength >> 1) + 8;
+            }
+            memory = Arrays.copyOf(memory, newLength);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free exchange of learned clauses between solvers running in parallel on the same
+ * variables. Clauses are published into a ring buffer of fixed capacity: a publisher claims the
+ * next sequence number with one atomic increment and stores an immutable entry in its slot, so
+ * publishing never blocks. Every solver reads the ring through a {@link Reader} of its own, which
+ * skips its own clauses. The ring is lossy: a reader that falls more than the capacity behind
+ * misses the clauses overwritten in the meantime.
+ */
+public class ClauseExchange {
+    private final AtomicReferenceArray<SharedClause> slots;
+    private final int mask;
+    
+    // Sequence number of the next clause to publish
+    private final AtomicLong next = new AtomicLong();
+    
+    /**
+     * Create an exchange holding the most recent clauses, at least the given number of them.
+     */
+    public ClauseExchange(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Publish the first size literals of lits as a clause learned by the given solver.
+     */
+    public void publish(int source, int[] lits, int size, int lbd) {
+        long seq = next.getAndIncrement();
+        SharedClause clause = new SharedClause(seq, source, Arrays.copyOf(lits, size), lbd);
+        slots.set((int) (seq & mask), clause);
+    }
+    
+    /**
+     * Create a reader for the given solver, starting at the clauses published from now on.
+     */
+    public Reader newReader(int source) {
+        return new Reader(source, next.get());
+    }
+    
+    /**
+     * A published clause; its literals must not be modified.
+     */
+    public static final class SharedClause {
+        private final long seq;
+        private final int source;
+        private final int[] lits;
+        private final int lbd;
+        
+        private SharedClause(long seq, int source, int[] lits, int lbd) {
+            this.seq = seq;
+            this.source = source;
+            this.lits = lits;
+            this.lbd = lbd;
+        }
+        
+        public int[] getLits() {
+            return lits;
+        }
+        
+        public int getLbd() {
+            return lbd;
+        }
+    }
+    
+    /**
+     * Cursor of one solver into the ring; it must only be used by the thread of that solver.
+     */
+    public final class Reader {
+        private final int source;
+        private long position;
+        
+        private Reader(int source, long position) {
+            this.source = source;
+            this.position = position;
+        }
+        
+        /**
+         * Get the next clause published by another solver, or null if there is none yet.
+         * A slot that was claimed but not written yet ends the clauses available for now.
+         */
+        public SharedClause next() {
+            while (position < next.get()) {
+                SharedClause clause = slots.get((int) (position & mask));
+                if (clause == null || clause.seq < position) {
+                    return null;
+                }
+                if (clause.seq > position) {
+                    // Overwritten: continue with the oldest clause that may still be in the ring
+                    position = Math.max(position + 1, next.get() - slots.length());
+                    continue;
+                }
+                position++;
+                if (clause.source != source) {
+                    return clause;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cube-and-conquer parallel solving.
+ * The expression is converted and preprocessed once. A lookahead {@link Cuber} then splits the
+ * search space into cubes, which are solved as tasks of a {@link ForkJoinPool} by incremental
+ * solvers under the cube literals as assumptions. The cube range is split recursively into
+ * subtasks, so idle workers steal halves of it. Every solver starts as a copy of the preprocessed
+ * clauses and is reused for later cubes, keeping its learned clauses. Solving stops at the first
+ * satisfiable cube, or at a cube whose failed assumptions are empty, since then the clauses are
+ * unsatisfiable without any cube.
+ */
+public class CubeAndConquer {
+    // Free variables considered by lookahead for every split
+    private static final int LOOKAHEAD_CANDIDATES = 40;
+    
+    private final CDCLSolver prototype;
+    private final SolverConfig config;
+    private final int depth;
+    private final int parallelism;
+    
+    // Solvers not working on a cube, and all solvers, which are interrupted on the first answer
+    private final Queue<CDCLSolver> idle = new ConcurrentLinkedQueue<>();
+    private final Queue<CDCLSolver> all = new ConcurrentLinkedQueue<>();
+    
+    // Answer decided by a single cube, or null while every cube solved so far was unsatisfiable
+    private final AtomicReference<Boolean> answer = new AtomicReference<>();
+    
+    private List<long[]> cubes = new ArrayList<>();
+    private int refutedCubes;
+    
+    // Solving time of every cube in nanoseconds, or -1 for cubes not solved
+    private long[] cubeTimes = new long[0];
+    private long cubingTime;
+    private Map<Long, Boolean> model;
+    
+    /**
+     * Create a cube-and-conquer solver with about eight cubes per worker.
+     */
+    public CubeAndConquer(Expr cnfExpr, int parallelism) {
+        this(cnfExpr, new SolverConfig(),
+             32 - Integer.numberOfLeadingZeros(Math.max(8 * parallelism - 1, 1)), parallelism);
+    }
+    
+    /**
+     * Create a cube-and-conquer solver that splits the search space up to depth times and solves
+     * the cubes on the given number of workers.
+     */
+    public CubeAndConquer(Expr cnfExpr, SolverConfig config, int depth, int parallelism) {
+        this.prototype = new CDCLSolver(cnfExpr, config);
+        this.config = config;
+        this.depth = depth;
+        this.parallelism = parallelism;
+    }
+    
+    public boolean solve() {
+        answer.set(null);
+        model = null;
+        long start = System.nanoTime();
+        Cuber cuber = new Cuber(new CDCLSolver(prototype, config), depth, LOOKAHEAD_CANDIDATES);
+        List<int[]> solverCubes = cuber.cube();
+        cubingTime = System.nanoTime() - start;
+        refutedCubes = cuber.getRefuted();
+        cubes = new ArrayList<>();
+        for (int[] cube : solverCubes) {
+            long[] ids = new long[cube.length];
+            for (int i = 0; i < cube.length; i++) {
+                long id = prototype.getVarId(Lit.var(cube[i]));
+                ids[i] = Lit.isNegative(cube[i]) ? -id : id;
+            }
+            cubes.add(ids);
+        }
+        cubeTimes = new long[cubes.size()];
+        Arrays.fill(cubeTimes, -1);
+        if (cubes.isEmpty()) {
+            return false;
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ConquerTask(0, cubes.size()));
+        } finally {
+            pool.shutdown();
+        }
+        return Boolean.TRUE.equals(answer.get());
+    }
+    
+    /**
+     * Solves the cubes of an index range, splitting ranges of more than one cube in halves.
+     */
+    private class ConquerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        
+        ConquerTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ConquerTask(from, mid), new ConquerTask(mid, to));
+            } else {
+                conquer(from);
+            }
+        }
+    }
+    
+    private void conquer(int index) {
+        if (answer.get() != null) {
+            return;
+        }
+        CDCLSolver solver = idle.poll();
+        if (solver == null) {
+            solver = new CDCLSolver(prototype, config);
+            all.add(solver);
+        }
+        
+        // Clear before checking the answer: an interrupt of all solvers follows the answer
+        solver.clearInterrupt();
+        if (answer.get() == null) {
+            long start = System.nanoTime();
+            boolean sat = solver.solve(cubes.get(index));
+            if (!solver.isInterrupted()) {
+                cubeTimes[index] = System.nanoTime() - start;
+                if (sat || solver.getFailedAssumptions().isEmpty()) {
+                    decide(sat, solver);
+                }
+            }
+        }
+        idle.add(solver);
+    }
+    
+    /**
+     * Record the answer found by a solver, unless another one was first, and stop the others.
+     */
+    private void decide(boolean sat, CDCLSolver solver) {
+        if (answer.compareAndSet(null, sat)) {
+            model = sat ? solver.getModel() : null;
+            for (CDCLSolver other : all) {
+                if (other != solver) {
+                    other.interrupt();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the model found by the last call to solve, or null if no model was found.
+     */
+    public Map<Long, Boolean> getModel() {
+        return model;
+    }
+    
+    /**
+     * Get the cubes of the last call to solve as signed variable ids of the input.
+     */
+    public List<long[]> getCubes() {
+        return cubes;
+    }
+    
+    /**
+     * Number of cubes dropped while cubing because propagation alone refuted them.
+     */
+    public int getRefutedCubes() {
+        return refutedCubes;
+    }
+    
+    /**
+     * Get the solving time of every cube in nanoseconds, in the order of {@link #getCubes()}, or
+     * -1 for cubes that were not solved because the answer was found before.
+     */
+    public long[] getCubeTimes() {
+        return cubeTimes;
+    }
+    
+    public long getCubingTime() {
+        return cubingTime;
+    }
+    
+    /**
+     * Summarize the cube times to show the load balance: the slowest cube against the mean.
+     */
+    public String getCubeTimeSummary() {
+        long[] solved = Arrays.stream(cubeTimes).filter(t -> t >= 0).sorted().toArray();
+        if (solved.length == 0) {
+            return String.format("cubes: %d, refuted while cubing: %d, none solved",
+                                 cubes.size(), refutedCubes);
+        }
+        double mean = Arrays.stream(solved).average().orElse(0);
+        return String.format("cubes: %d, refuted while cubing: %d, solved: %d, cubing: %.1f ms%n"
+                             + "cube time (ms): min %.1f, median %.1f, mean %.1f, max %.1f "
+                             + "(%.2f x mean)",
+                             cubes.size(), refutedCubes, solved.length, cubingTime / 1e6,
+                             solved[0] / 1e6, solved[solved.length / 2] / 1e6, mean / 1e6,
+                             solved[solved.length - 1] / 1e6,
+                             mean == 0 ? 0 : solved[solved.length - 1] / mean);
+    }
+}
@@ -0,0 +1,116 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.*;
+
+/**
+ * Lookahead cuber for cube-and-conquer.
+ * Splits the search space into cubes, conjunctions of literals that together cover every
+ * satisfying assignment. A cube is split on the variable whose two literals both assign the most
+ * variables when propagated from the cube, until it holds the given number of splits. Literals
+ * whose propagation fails are added to the cube without a split, and cubes that fail by
+ * propagation alone are dropped since they cannot be satisfied. To bound the lookahead cost, only
+ * the free variables with the most occurrences in short clauses are considered for a split.
+ */
+public class Cuber {
+    private final CDCLSolver solver;
+    private final int depth;
+    private final int candidateLimit;
+    
+    private final List<int[]> cubes = new ArrayList<>();
+    private int refuted = 0;
+    
+    /**
+     * Create a cuber that runs lookahead on the given solver, which must not be searched.
+     */
+    public Cuber(CDCLSolver solver, int depth, int candidateLimit) {
+        this.solver = solver;
+        this.depth = depth;
+        this.candidateLimit = candidateLimit;
+    }
+    
+    /**
+     * Split the search space into cubes of solver literals; an empty list means the clauses are
+     * unsatisfiable.
+     */
+    public List<int[]> cube() {
+        cubes.clear();
+        refuted = 0;
+        split(new IntVec(), 0);
+        return cubes;
+    }
+    
+    /**
+     * Number of cubes dropped by the last call to {@link #cube()} because propagation refuted them.
+     */
+    public int getRefuted() {
+        return refuted;
+    }
+    
+    private void split(IntVec cube, int splits) {
+        int size = cube.size();
+        while (true) {
+            if (!solver.assumeCube(cube)) {
+                refuted++;
+                break;
+            }
+            if (splits == depth) {
+                cubes.add(cube.toArray());
+                break;
+            }
+            
+            // Score both literals of every candidate by lookahead, preferring variables whose
+            // literals both propagate much; a failed literal forces its complement instead
+            int best = -1;
+            long bestScore = -1;
+            int forced = -1;
+            for (int var : candidates()) {
+                int pos = solver.lookahead(Lit.of(var, false));
+                int neg = solver.lookahead(Lit.of(var, true));
+                if (pos < 0 || neg < 0) {
+                    forced = pos < 0 ? Lit.of(var, true) : Lit.of(var, false);
+                    break;
+                }
+                long score = 1024L * pos * neg + pos + neg;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = var;
+                }
+            }
+            if (forced >= 0) {
+                cube.push(forced);
+                continue;
+            }
+            if (best < 0) {
+                // Every variable is assigned, so the cube is as good as a model
+                cubes.add(cube.toArray());
+                break;
+            }
+            cube.push(Lit.of(best, false));
+            split(cube, splits + 1);
+            cube.set(cube.size() - 1, Lit.of(best, true));
+            split(cube, splits + 1);
+            break;
+        }
+        cube.shrink(size);
+    }
+    
+    /**
+     * Free variables with the largest product of short clause occurrences of their literals.
+     */
+    private List<Integer> candidates() {
+        List<Integer> free = new ArrayList<>();
+        for (int var = 0; var < solver.getNumVars(); var++) {
+            if (solver.isFree(var)) {
+                free.add(var);
+            }
+        }
+        free.sort(Comparator.comparingLong(var -> -weight(var)));
+        return free.size() > candidateLimit ? free.subList(0, candidateLimit) : free;
+    }
+    
+    private long weight(int var) {
+        long pos = solver.shortClauseOccurrences(Lit.of(var, false)) + 1;
+        long neg = solver.shortClauseOccurrences(Lit.of(var, true)) + 1;
+        return pos * neg;
+    }
+}
@@ -0,0 +1,224 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Equivalent literal substitution.
+ * Binary clauses (a | b) form an implication graph with the edges ~a -> b and ~b -> a. Literals in
+ * one strongly connected component of this graph are equivalent, so every literal is replaced by
+ * the representative of its component throughout the clauses. Components are found with an
+ * iterative version of Tarjan's algorithm. Substituted variables get the value of their
+ * representative when a model is extended.
+ */
+public class EquivalenceReducer {
+    private final ClauseArena arena;
+    private final int numVars;
+    
+    // Representative of each literal; a literal that is not substituted represents itself
+    private final int[] representative;
+    private int substitutedCount = 0;
+    
+    // Variables whose component, or the complement component, was handled
+    private final boolean[] handled;
+    
+    public EquivalenceReducer(ClauseArena arena, int numVars) {
+        this.arena = arena;
+        this.numVars = numVars;
+        this.representative = new int[2 * numVars];
+        this.handled = new boolean[numVars];
+        for (int lit = 0; lit < representative.length; lit++) {
+            representative[lit] = lit;
+        }
+    }
+    
+    public boolean isSubstituted(int var) {
+        return representative[Lit.of(var, false)] != Lit.of(var, false);
+    }
+    
+    public int getSubstitutedCount() {
+        return substitutedCount;
+    }
+    
+    /**
+     * Find equivalent literals through the binary clauses and substitute them in the given
+     * clauses, which are updated in place; clauses that become tautologies are dropped.
+     * Variables for which isFrozen returns true keep their literals.
+     * Returns false if a literal was found equivalent to its complement.
+     */
+    public boolean reduce(IntVec clauses, IntPredicate isFrozen) {
+        if (!findRepresentatives(clauses, isFrozen)) {
+            return false;
+        }
+        if (substitutedCount == 0) {
+            return true;
+        }
+        
+        int[] marks = new int[2 * numVars];
+        int stamp = 0;
+        int j = 0;
+        for (int i = 0; i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            stamp++;
+            int size = 0;
+            boolean tautology = false;
+            for (int k = 0; k < arena.size(cref) && !tautology; k++) {
+                int lit = representative[arena.lit(cref, k)];
+                tautology = marks[Lit.neg(lit)] == stamp;
+                if (marks[lit] != stamp) {
+                    marks[lit] = stamp;
+                    arena.setLit(cref, size++, lit);
+                }
+            }
+            if (tautology) {
+                arena.free(cref);
+            } else {
+                arena.shrink(cref, size);
+                clauses.set(j++, cref);
+            }
+        }
+        clauses.shrink(j);
+        return true;
+    }
+    
+    /**
+     * Give every substituted variable the value of its representative.
+     */
+    public void extendModel(boolean[] model) {
+        for (int var = 0; var < numVars; var++) {
+            int rep = representative[Lit.of(var, false)];
+            if (Lit.var(rep) != var) {
+                model[var] = model[Lit.var(rep)] != Lit.isNegative(rep);
+            }
+        }
+    }
+    
+    /**
+     * Compute the strongly connected components of the binary implication graph and choose the
+     * literal with the smallest variable of each component as its representative. The component of
+     * the complements gets the complement representative.
+     */
+    private boolean findRepresentatives(IntVec clauses, IntPredicate isFrozen) {
+        int nodes = 2 * numVars;
+        
+        // Implication graph in compressed adjacency form: the successors of lit are
+        // edges[start[lit]..start[lit + 1])
+        int[] start = new int[nodes + 1];
+        for (int i = 0; i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            if (arena.size(cref) == 2) {
+                start[Lit.neg(arena.lit(cref, 0)) + 1]++;
+                start[Lit.neg(arena.lit(cref, 1)) + 1]++;
+            }
+        }
+        for (int lit = 0; lit < nodes; lit++) {
+            start[lit + 1] += start[lit];
+        }
+        int[] edges = new int[start[nodes]];
+        int[] fill = Arrays.copyOf(start, nodes);
+        for (int i = 0; i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            if (arena.size(cref) == 2) {
+                int a = arena.lit(cref, 0);
+                int b = arena.lit(cref, 1);
+                edges[fill[Lit.neg(a)]++] = b;
+                edges[fill[Lit.neg(b)]++] = a;
+            }
+        }
+        
+        int[] index = new int[nodes];
+        int[] low = new int[nodes];
+        int[] next = new int[nodes];
+        boolean[] onStack = new boolean[nodes];
+        Arrays.fill(index, -1);
+        IntVec stack = new IntVec();
+        IntVec path = new IntVec();
+        IntVec component = new IntVec();
+        int counter = 0;
+        
+        for (int root = 0; root < nodes; root++) {
+            if (index[root] >= 0 || start[root] == start[root + 1]) {
+                continue;
+            }
+            index[root] = low[root] = counter++;
+            next[root] = start[root];
+            stack.push(root);
+            onStack[root] = true;
+            path.push(root);
+            
+            while (!path.isEmpty()) {
+                int v = path.last();
+                if (next[v] < start[v + 1]) {
+                    int w = edges[next[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        next[w] = start[w];
+                        stack.push(w);
+                        onStack[w] = true;
+                        path.push(w);
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                
+                // All successors of v are done
+                path.pop();
+                if (!path.isEmpty()) {
+                    int parent = path.last();
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] != index[v]) {
+                    continue;
+                }
+                component.clear();
+                int w;
+                do {
+                    w = stack.pop();
+                    onStack[w] = false;
+                    component.push(w);
+                } while (w != v);
+                if (!substitute(component, isFrozen)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Make the literal with the smallest variable the representative of a component, unless the
+     * complement component was handled already.
+     * Returns false if the component contains a literal together with its complement.
+     */
+    private boolean substitute(IntVec component, IntPredicate isFrozen) {
+        if (component.size() < 2) {
+            return true;
+        }
+        int rep = component.get(0);
+        for (int i = 1; i < component.size(); i++) {
+            if (Lit.var(component.get(i)) < Lit.var(rep)) {
+                rep = component.get(i);
+            }
+        }
+        for (int i = 0; i < component.size(); i++) {
+            int lit = component.get(i);
+            if (lit != rep && Lit.var(lit) == Lit.var(rep)) {
+                return false;
+            }
+        }
+        if (handled[Lit.var(rep)]) {
+            return true;
+        }
+        for (int i = 0; i < component.size(); i++) {
+            int lit = component.get(i);
+            handled[Lit.var(lit)] = true;
+            if (lit != rep && !isFrozen.test(Lit.var(lit))) {
+                representative[lit] = rep;
+                representative[Lit.neg(lit)] = Lit.neg(rep);
+                substitutedCount++;
+            }
+        }
+        return true;
+    }
+}
@@ -25,7 +25,7 @@ public class ExprUtils
         ImplEquivTransformer tr1 = new ImplEquivTransformer();
         PushNegTransformer tr2 = new PushNegTransformer();
 
-        dfsWalk(expr, tr1);
+        dfsWalk(expr, tr1, true);
         Expr interExpr = tr1.newExpr(expr);
         dfsWalk(interExpr, tr2);
 
@@ -36,38 +36,48 @@ public class ExprUtils
     {
         ExprCNFTransformer cnfTransformer = new ExprCNFTransformer();
         Expr nnfExpr = toNNF(expr);
-        dfsWalk(nnfExpr, cnfTransformer);
+        dfsWalk(nnfExpr, cnfTransformer, true);
         return cnfTransformer.getTransformedExpr(nnfExpr);
     }
 
     public static boolean isCNF(Expr expr) {
-        if (expr.getKind() == Expr.ExprKind.AND) {
-            AndExpr e = (AndExpr) expr;
-            return isCNF(e.getLeft()) && isCNF(e.getRight());
-        } else if (expr.getKind() == Expr.ExprKind.IMPL) {
-            return false;
-        } else if (expr.getKind() == Expr.ExprKind.EQUIV) {
-            return false;
-        } else if (expr.getKind() == Expr.ExprKind.NEG) {
-            NegExpr e = (NegExpr) expr;
-            return e.getExpr().getKind() == Expr.ExprKind.VAR;
-        } else if (expr.getKind() == Expr.ExprKind.OR) {
-            return isDisjunctionOfLiterals(expr);
+        Stack<Expr> s = new Stack<>();
+        s.push(expr);
+        while (!s.isEmpty()) {
+            Expr e = s.pop();
+            if (e.getKind() == Expr.ExprKind.AND) {
+                AndExpr andExpr = (AndExpr) e;
+                s.push(andExpr.getRight());
+                s.push(andExpr.getLeft());
+            } else if (e.getKind() == Expr.ExprKind.IMPL) {
+                return false;
+            } else if (e.getKind() == Expr.ExprKind.EQUIV) {
+                return false;
+            } else if (e.getKind() == Expr.ExprKind.NEG) {
+                if (!isLiteral(e))
+                    return false;
+            } else if (e.getKind() == Expr.ExprKind.OR) {
+                if (!isDisjunctionOfLiterals(e))
+                    return false;
+            }
         }
         return true;
     }
 
     public static boolean isDisjunctionOfLiterals(Expr expr) {
-        if (expr.getKind() == Expr.ExprKind.OR) {
-            OrExpr e = (OrExpr) expr;
-            return isDisjunctionOfLiterals(e.getLeft()) && isDisjunctionOfLiterals(e.getRight());
-        } else if (expr.getKind() == Expr.ExprKind.VAR) {
-            return true;
-        } else if (expr.getKind() == Expr.ExprKind.NEG) {
-            NegExpr e = (NegExpr) expr;
-            return e.getExpr().getKind() == Expr.ExprKind.VAR;
+        Stack<Expr> s = new Stack<>();
+        s.push(expr);
+        while (!s.isEmpty()) {
+            Expr e = s.pop();
+            if (e.getKind() == Expr.ExprKind.OR) {
+                OrExpr orExpr = (OrExpr) e;
+                s.push(orExpr.getRight());
+                s.push(orExpr.getLeft());
+            } else if (!isLiteral(e)) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
 
     public static Expr toTseitin(Expr expr)
@@ -75,11 +85,11 @@ public class ExprUtils
         if (isCNF(expr))
             return expr;
         AuxVarCollectorListener auxVarCollectorListener = new AuxVarCollectorListener(getMaxVarID(expr) + 1);
-        dfsWalk(expr, auxVarCollectorListener);
+        dfsWalk(expr, auxVarCollectorListener, true);
 
         Map<Expr, VarExpr> auxVarMap = auxVarCollectorListener.auxVarMap;
         TseitinClausesCollector tseitinClausesCollector = new TseitinClausesCollector(auxVarMap);
-        dfsWalk(expr, tseitinClausesCollector);
+        dfsWalk(expr, tseitinClausesCollector, true);
 
         List<Expr> tseitinClauses = tseitinClausesCollector.tseitinClauses;
         return tseitinClauses.stream()
@@ -106,7 +116,6 @@ public class ExprUtils
     public static Expr parseFromDimcas(InputStream inStream)
     {
         Set<Expr> clauses = new HashSet<>();
-<<<<<<< HEAD
         try (Scanner input = new Scanner(inStream))
         {
             while(input.hasNextLine())
@@ -120,20 +129,6 @@ public class ExprUtils
                                       .map(lit -> lit > 0 ? mkVAR(lit) : mkNEG(mkVAR(-lit)))
                                       .reduce(ExprFactory::mkOR).get());
                 }
-=======
-        Scanner input = new Scanner(inStream);
-
-        while(input.hasNextLine())
-        {
-            String l = input.nextLine();
-            if (!l.startsWith("p cnf "))
-            {
-                clauses.add(Stream.of(l.split(" "))
-                                  .map(Long::parseLong)
-                                  .filter(lit -> !lit.equals(0L))
-                                  .map(lit -> lit > 0 ? mkVAR(lit) : mkNEG(mkVAR(-lit)))
-                                  .reduce(ExprFactory::mkOR).get());
->>>>>>> 083e919ec84aabbae83a8fbef034fc236701dc6d
             }
         }
 
@@ -257,7 +252,7 @@ public class ExprUtils
     private static long getMaxVarID(Expr e)
     {
         MaxIDListener maxIDListener = new MaxIDListener();
-        dfsWalk(e, maxIDListener);
+        dfsWalk(e, maxIDListener, true);
         return maxIDListener.maxID;
     }
 }
@@ -494,7 +489,7 @@ class ExprCNFTransformer extends ExprBaseTransformASTListener
     private Set<Expr> clausesOf(Expr e)
     {
         ClausesCollector clausesCollector = new ClausesCollector();
-        dfsWalk(e, clausesCollector);
+        dfsWalk(e, clausesCollector, true);
         return clausesCollector.clauses;
     }
 }
@@ -2,79 +2,125 @@ package edu.utexas.cs.alr.util;
 
 import edu.utexas.cs.alr.ast.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 public class ExprWalker
 {
     public static void dfsWalk(Expr e, ExprASTListener listener)
     {
-        boolean visitChildren = true;
-        switch (e.getKind())
-        {
-            case VAR:
-                VarExpr varExpr = (VarExpr) e;
-                listener.enterVAR(varExpr);
-                listener.exitVAR(varExpr);
-                break;
-            case NEG:
-                NegExpr negExpr = (NegExpr) e;
+        dfsWalk(e, listener, false);
+    }
+
+    /**
+     * Walk the expression depth-first, calling the enter method of every node before its
+     * children and the exit method after them; children are skipped when enter returns false.
+     * Nodes pending exit are kept on an explicit stack, so the depth of the expression is not
+     * bounded by the call stack. If visitOnce is set, a node shared by several parents is only
+     * entered and exited the first time it is reached; the listener must then not depend on the
+     * path to a node, e.g. on the number of negations above it.
+     */
+    public static void dfsWalk(Expr root, ExprASTListener listener, boolean visitOnce)
+    {
+        Set<Expr> visited = visitOnce ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
 
-                visitChildren = listener.enterNEG(negExpr);
+        Expr[] stack = new Expr[64];
+        boolean[] pendingExit = new boolean[64];
+        int size = 0;
 
-                if (visitChildren)
-                    dfsWalk(negExpr.getExpr(), listener);
+        stack[size++] = root;
+        while (size > 0)
+        {
+            Expr e = stack[--size];
+            if (pendingExit[size])
+            {
+                pendingExit[size] = false;
+                exit(e, listener);
+                continue;
+            }
+            if (visited != null && !visited.add(e))
+                continue;
+
+            if (size + 3 > stack.length)
+            {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+                pendingExit = Arrays.copyOf(pendingExit, stack.length);
+            }
+
+            Expr left = null, right = null;
+            boolean visitChildren;
+            switch (e.getKind())
+            {
+                case VAR:
+                    VarExpr varExpr = (VarExpr) e;
+                    listener.enterVAR(varExpr);
+                    listener.exitVAR(varExpr);
+                    continue;
+                case NEG:
+                    NegExpr negExpr = (NegExpr) e;
+                    visitChildren = listener.enterNEG(negExpr);
+                    left = negExpr.getExpr();
+                    break;
+                case AND:
+                    AndExpr andExpr = (AndExpr) e;
+                    visitChildren = listener.enterAND(andExpr);
+                    left = andExpr.getLeft();
+                    right = andExpr.getRight();
+                    break;
+                case OR:
+                    OrExpr orExpr = (OrExpr) e;
+                    visitChildren = listener.enterOR(orExpr);
+                    left = orExpr.getLeft();
+                    right = orExpr.getRight();
+                    break;
+                case IMPL:
+                    ImplExpr implExpr = (ImplExpr) e;
+                    visitChildren = listener.enterIMPL(implExpr);
+                    left = implExpr.getAntecedent();
+                    right = implExpr.getConsequent();
+                    break;
+                case EQUIV:
+                    EquivExpr equivExpr = (EquivExpr) e;
+                    visitChildren = listener.enterEQUIV(equivExpr);
+                    left = equivExpr.getLeft();
+                    right = equivExpr.getRight();
+                    break;
+                default:
+                    assert false;
+                    continue;
+            }
+
+            pendingExit[size] = true;
+            stack[size++] = e;
+            if (visitChildren)
+            {
+                if (right != null)
+                    stack[size++] = right;
+                stack[size++] = left;
+            }
+        }
+    }
 
-                listener.exitNEG(negExpr);
+    private static void exit(Expr e, ExprASTListener listener)
+    {
+        switch (e.getKind())
+        {
+            case NEG:
+                listener.exitNEG((NegExpr) e);
                 break;
             case AND:
-                AndExpr andExpr = (AndExpr) e;
-
-                visitChildren = listener.enterAND(andExpr);
-
-                if (visitChildren)
-                {
-                    dfsWalk(andExpr.getLeft(), listener);
-                    dfsWalk(andExpr.getRight(), listener);
-                }
-
-                listener.exitAND(andExpr);
+                listener.exitAND((AndExpr) e);
                 break;
             case OR:
-                OrExpr orExpr = (OrExpr) e;
-
-                visitChildren = listener.enterOR(orExpr);
-
-                if (visitChildren)
-                {
-                    dfsWalk(orExpr.getLeft(), listener);
-                    dfsWalk(orExpr.getRight(), listener);
-                }
-
-                listener.exitOR(orExpr);
+                listener.exitOR((OrExpr) e);
                 break;
             case IMPL:
-                ImplExpr implExpr = (ImplExpr) e;
-
-                visitChildren = listener.enterIMPL(implExpr);
-
-                if (visitChildren)
-                {
-                    dfsWalk(implExpr.getAntecedent(), listener);
-                    dfsWalk(implExpr.getConsequent(), listener);
-                }
-
-                listener.exitIMPL(implExpr);
+                listener.exitIMPL((ImplExpr) e);
                 break;
             case EQUIV:
-                EquivExpr equivExpr = (EquivExpr) e;
-
-                visitChildren = listener.enterEQUIV(equivExpr);
-
-                if (visitChildren)
-                {
-                    dfsWalk(equivExpr.getLeft(), listener);
-                    dfsWalk(equivExpr.getRight(), listener);
-                }
-
-                listener.exitEQUIV(equivExpr);
+                listener.exitEQUIV((EquivExpr) e);
                 break;
             default:
                 assert false;
@@ -0,0 +1,45 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Glucose-style dynamic restarts.
+ * Keeps a fast and a slow exponential moving average of the LBD of learned clauses and restarts
+ * when recent clauses are markedly worse than the long-term average, i.e. when the fast average
+ * exceeds the slow one by the configured margin.
+ */
+public class GlucoseRestartPolicy implements RestartPolicy {
+    private static final double FAST_ALPHA = 1.0 / 32;
+    private static final double SLOW_ALPHA = 1.0 / 4096;
+    
+    private final double margin;
+    private final int minConflicts;
+    
+    private double fastAverage = 0;
+    private double slowAverage = 0;
+    private long conflicts = 0;
+    private long conflictsSinceRestart = 0;
+    
+    public GlucoseRestartPolicy(double margin, int minConflicts) {
+        this.margin = margin;
+        this.minConflicts = minConflicts;
+    }
+    
+    @Override
+    public void onConflict(int lbd) {
+        conflicts++;
+        conflictsSinceRestart++;
+        
+        // Averages start as plain means so that early values are not biased towards zero
+        fastAverage += (lbd - fastAverage) * Math.max(FAST_ALPHA, 1.0 / conflicts);
+        slowAverage += (lbd - slowAverage) * Math.max(SLOW_ALPHA, 1.0 / conflicts);
+    }
+    
+    @Override
+    public boolean shouldRestart() {
+        return conflictsSinceRestart >= minConflicts && fastAverage > margin * slowAverage;
+    }
+    
+    @Override
+    public void onRestart() {
+        conflictsSinceRestart = 0;
+    }
+}
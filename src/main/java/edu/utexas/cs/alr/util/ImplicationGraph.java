@@ -5,148 +5,334 @@ import java.util.*;
 /**
  * Implication graph for CDCL algorithm.
  * Tracks decision levels, assignments, and reasons for implications.
+ * Variables and literals use the {@link Lit} encoding; reasons are clause references, except for
+ * implications by binary clauses, whose reason is stored inline as the other literal of the clause
+ * (see {@link #isBinaryReason(int)}).
+ * Assignments are kept on a trail with one start marker per decision level, so backtracking
+ * only undoes the suffix of the trail above the target level. Implications may be assigned at a
+ * level below the current one for chronological backtracking; such literals can sit above the
+ * start of a higher level and are kept on the trail when that level is undone.
  */
 public class ImplicationGraph {
-    // Assignment: variable -> literal value (positive or negative)
-    private final Map<Long, Long> assignment = new HashMap<>();
+    // Value of each literal: 1 if true, -1 if false, 0 if unassigned
+    private byte[] values;
     
     // Decision level for each variable
-    private final Map<Long, Integer> decisionLevel = new HashMap<>();
+    private int[] decisionLevel;
     
-    // Reason clause for each assignment (null for decision variables)
-    private final Map<Long, Set<Long>> reason = new HashMap<>();
+    // Reason for each variable: a clause reference, an inline binary reason, or NO_CLAUSE for decisions
+    private int[] reason;
     
-    // Current decision level
-    private int currentLevel = 0;
+    // Assigned literals in assignment order; drives unit propagation
+    private int[] trail;
+    private int trailSize = 0;
     
-    // Decision variables at each level
-    private final List<Long> decisions = new ArrayList<>();
+    // Trail position of the decision opening each level
+    private final IntVec levelStarts = new IntVec();
+    
+    // Polarity of each variable when it was last unassigned: 1 positive, -1 negative, 0 never assigned
+    private byte[] savedPhase;
+    
+    // Polarities of the longest conflict-free trail seen so far
+    private byte[] targetPhase;
+    private int targetTrailSize = 0;
+    
+    public ImplicationGraph(int numVars) {
+        this.values = new byte[2 * numVars];
+        this.decisionLevel = new int[numVars];
+        this.reason = new int[numVars];
+        this.trail = new int[numVars];
+        this.savedPhase = new byte[numVars];
+        this.targetPhase = new byte[numVars];
+    }
+    
+    /**
+     * Make room for variables below the given capacity.
+     */
+    public void grow(int capacity) {
+        values = Arrays.copyOf(values, 2 * capacity);
+        decisionLevel = Arrays.copyOf(decisionLevel, capacity);
+        reason = Arrays.copyOf(reason, capacity);
+        trail = Arrays.copyOf(trail, capacity);
+        savedPhase = Arrays.copyOf(savedPhase, capacity);
+        targetPhase = Arrays.copyOf(targetPhase, capacity);
+    }
     
     /**
      * Get the current decision level.
      */
     public int getCurrentLevel() {
-        return currentLevel;
+        return levelStarts.size();
+    }
+    
+    /**
+     * Value of a literal: 1 if true, -1 if false, 0 if unassigned.
+     */
+    public int value(int literal) {
+        return values[literal];
     }
     
     /**
-     * Get the assignment for a variable, or null if unassigned.
+     * Get the true literal of a variable, or -1 if unassigned.
      */
-    public Long getAssignment(Long var) {
-        return assignment.get(var);
+    public int getAssignment(int var) {
+        int pos = Lit.of(var, false);
+        if (values[pos] == 0) {
+            return -1;
+        }
+        return values[pos] > 0 ? pos : Lit.neg(pos);
     }
     
     /**
      * Check if a variable is assigned.
      */
-    public boolean isAssigned(Long var) {
-        return assignment.containsKey(var);
+    public boolean isAssigned(int var) {
+        return values[Lit.of(var, false)] != 0;
     }
     
     /**
-     * Get the decision level for a variable.
+     * Get the decision level for a variable, or -1 if unassigned.
      */
-    public int getDecisionLevel(Long var) {
-        return decisionLevel.getOrDefault(var, -1);
+    public int getDecisionLevel(int var) {
+        return isAssigned(var) ? decisionLevel[var] : -1;
     }
     
     /**
      * Get the reason clause for an assignment.
      */
-    public Set<Long> getReason(Long var) {
-        return reason.get(var);
+    public int getReason(int var) {
+        return isAssigned(var) ? reason[var] : ClauseArena.NO_CLAUSE;
     }
     
     /**
      * Check if a variable is a decision variable (no reason clause).
      */
-    public boolean isDecision(Long var) {
-        return reason.get(var) == null && isAssigned(var);
+    public boolean isDecision(int var) {
+        return getReason(var) == ClauseArena.NO_CLAUSE && isAssigned(var);
     }
     
     /**
      * Make a decision assignment.
      */
-    public void makeDecision(Long literal) {
-        currentLevel++;
-        long var = Math.abs(literal);
-        assignment.put(var, literal);
-        decisionLevel.put(var, currentLevel);
-        reason.put(var, null); // Decision has no reason
-        decisions.add(literal);
+    public void makeDecision(int literal) {
+        levelStarts.push(trailSize);
+        assign(literal, ClauseArena.NO_CLAUSE, levelStarts.size()); // Decision has no reason
+    }
+    
+    /**
+     * Open a decision level without a decision, e.g. for an assumption that already holds.
+     */
+    public void newDecisionLevel() {
+        levelStarts.push(trailSize);
     }
     
     /**
      * Make an implication assignment (unit propagation).
      */
-    public void makeImplication(Long literal, Set<Long> reasonClause) {
-        long var = Math.abs(literal);
-        assignment.put(var, literal);
-        decisionLevel.put(var, currentLevel);
-        reason.put(var, reasonClause);
+    public void makeImplication(int literal, int reasonClause) {
+        assign(literal, reasonClause, levelStarts.size());
+    }
+    
+    /**
+     * Make an implication assignment at a level that may be below the current level, which must
+     * be the highest level of the other literals of the reason.
+     */
+    public void makeImplication(int literal, int reasonClause, int level) {
+        assign(literal, reasonClause, level);
+    }
+    
+    /**
+     * Make an implication by the binary clause (literal | otherLiteral), storing the reason inline.
+     */
+    public void makeBinaryImplication(int literal, int otherLiteral) {
+        assign(literal, -2 - otherLiteral, levelStarts.size());
+    }
+    
+    /**
+     * Make an implication by a binary clause at a level that may be below the current level,
+     * which must be the level of otherLiteral.
+     */
+    public void makeBinaryImplication(int literal, int otherLiteral, int level) {
+        assign(literal, -2 - otherLiteral, level);
+    }
+    
+    /**
+     * Check if a reason returned by {@link #getReason(int)} is an inline binary reason.
+     */
+    public static boolean isBinaryReason(int reason) {
+        return reason < ClauseArena.NO_CLAUSE;
+    }
+    
+    /**
+     * Get the other literal of the binary clause behind an inline binary reason; it is false.
+     */
+    public static int binaryReasonLiteral(int reason) {
+        return -2 - reason;
+    }
+    
+    private void assign(int literal, int reasonClause, int level) {
+        int var = Lit.var(literal);
+        values[literal] = 1;
+        values[Lit.neg(literal)] = -1;
+        decisionLevel[var] = level;
+        reason[var] = reasonClause;
+        trail[trailSize++] = literal;
     }
     
     /**
      * Backtrack to a specific decision level.
      */
     public void backtrack(int level) {
-        List<Long> toRemove = new ArrayList<>();
-        for (Map.Entry<Long, Integer> entry : decisionLevel.entrySet()) {
-            if (entry.getValue() > level) {
-                toRemove.add(entry.getKey());
-            }
+        backtrack(level, true);
+    }
+    
+    /**
+     * Backtrack to a specific decision level, optionally without saving the phases of the
+     * unassigned variables, e.g. when undoing trial assignments that are not part of the search.
+     */
+    public void backtrack(int level, boolean savePhases) {
+        if (level >= levelStarts.size()) {
+            return;
         }
         
-        for (Long var : toRemove) {
-            assignment.remove(var);
-            decisionLevel.remove(var);
-            reason.remove(var);
+        // Only the trail suffix above the level is undone; phases are saved for later decisions.
+        // Literals of the suffix implied at or below the level are moved down, keeping their order
+        int start = levelStarts.get(level);
+        int kept = start;
+        for (int i = start; i < trailSize; i++) {
+            int literal = trail[i];
+            if (decisionLevel[Lit.var(literal)] <= level) {
+                trail[kept++] = literal;
+                continue;
+            }
+            values[literal] = 0;
+            values[Lit.neg(literal)] = 0;
+            if (savePhases) {
+                savedPhase[Lit.var(literal)] = phaseOf(literal);
+            }
         }
-        
-        // Remove decisions beyond this level
-        while (decisions.size() > level) {
-            decisions.remove(decisions.size() - 1);
+        trailSize = kept;
+        levelStarts.shrink(level);
+    }
+    
+    /**
+     * Record the polarities of the first conflictFreeSize trail literals as the target phase
+     * if that prefix is longer than any conflict-free trail recorded before.
+     */
+    public void updateTargetPhase(int conflictFreeSize) {
+        if (conflictFreeSize <= targetTrailSize) {
+            return;
         }
-        
-        currentLevel = level;
+        for (int i = 0; i < conflictFreeSize; i++) {
+            targetPhase[Lit.var(trail[i])] = phaseOf(trail[i]);
+        }
+        targetTrailSize = conflictFreeSize;
+    }
+    
+    /**
+     * Forget the length of the recorded target trail so that a shorter one can replace it.
+     * The recorded polarities stay in use until they are overwritten.
+     */
+    public void resetTargetTrailSize() {
+        targetTrailSize = 0;
+    }
+    
+    /**
+     * Get the literal to decide for a variable: its target phase if enabled and known,
+     * otherwise its saved phase, defaulting to the positive literal.
+     */
+    public int getPhaseLiteral(int var, boolean useTargetPhase) {
+        byte phase = useTargetPhase && targetPhase[var] != 0 ? targetPhase[var] : savedPhase[var];
+        return Lit.of(var, phase < 0);
+    }
+    
+    /**
+     * Set the saved phase of every variable at random.
+     */
+    public void randomizePhases(Random random) {
+        for (int var = 0; var < savedPhase.length; var++) {
+            savedPhase[var] = random.nextBoolean() ? (byte) 1 : (byte) -1;
+        }
+    }
+    
+    private static byte phaseOf(int literal) {
+        return Lit.isNegative(literal) ? (byte) -1 : (byte) 1;
     }
     
     /**
-     * Get all assigned variables.
+     * Get the number of literals on the trail, i.e. the number of assigned variables.
      */
-    public Set<Long> getAssignedVariables() {
-        return new HashSet<>(assignment.keySet());
+    public int getTrailSize() {
+        return trailSize;
     }
     
     /**
-     * Get the decision variable at a specific level.
+     * Get the literal assigned at a position of the trail.
      */
-    public Long getDecisionAtLevel(int level) {
-        if (level > 0 && level <= decisions.size()) {
-            return decisions.get(level - 1);
+    public int getTrailLiteral(int index) {
+        return trail[index];
+    }
+    
+    /**
+     * Get the trail position of the first assignment made at a level.
+     */
+    public int getTrailStart(int level) {
+        if (level == 0) {
+            return 0;
         }
-        return null;
+        return level <= levelStarts.size() ? levelStarts.get(level - 1) : trailSize;
+    }
+    
+    /**
+     * Translate the reasons of current assignments after the clause arena was compacted.
+     */
+    public void relocateReasons(int[] forwarding) {
+        for (int i = 0; i < trailSize; i++) {
+            int var = Lit.var(trail[i]);
+            if (reason[var] >= 0) {
+                reason[var] = forwarding[reason[var]];
+            }
+        }
+    }
+    
+    /**
+     * Get the decision literal at a specific level, or -1 if there is none.
+     */
+    public int getDecisionAtLevel(int level) {
+        if (level <= 0 || level > levelStarts.size() || levelStarts.get(level - 1) == trailSize) {
+            return -1;
+        }
+        // A level opened without a decision may start with a literal kept from a higher level
+        int literal = trail[levelStarts.get(level - 1)];
+        int var = Lit.var(literal);
+        return decisionLevel[var] == level && reason[var] == ClauseArena.NO_CLAUSE ? literal : -1;
     }
     
     /**
      * Reset the graph.
      */
     public void reset() {
-        assignment.clear();
-        decisionLevel.clear();
-        reason.clear();
-        currentLevel = 0;
-        decisions.clear();
+        backtrack(0);
+        for (int i = 0; i < trailSize; i++) {
+            values[trail[i]] = 0;
+            values[Lit.neg(trail[i])] = 0;
+        }
+        trailSize = 0;
     }
     
     /**
      * Get all variables at a specific decision level.
      */
-    public Set<Long> getVariablesAtLevel(int level) {
-        Set<Long> vars = new HashSet<>();
-        for (Map.Entry<Long, Integer> entry : decisionLevel.entrySet()) {
-            if (entry.getValue() == level) {
-                vars.add(entry.getKey());
+    public Set<Integer> getVariablesAtLevel(int level) {
+        Set<Integer> vars = new HashSet<>();
+        if (level > levelStarts.size()) {
+            return vars;
+        }
+        // Literals of the level start at its decision but may be followed by higher levels
+        int start = level == 0 ? 0 : levelStarts.get(level - 1);
+        for (int i = start; i < trailSize; i++) {
+            if (decisionLevel[Lit.var(trail[i])] == level) {
+                vars.add(Lit.var(trail[i]));
             }
         }
         return vars;
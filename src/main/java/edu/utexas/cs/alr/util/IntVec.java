@@ -0,0 +1,78 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints.
+ */
+public class IntVec {
+    private int[] data;
+    private int size;
+    
+    public IntVec() {
+        this(8);
+    }
+    
+    public IntVec(int capacity) {
+        this.data = new int[Math.max(capacity, 1)];
+    }
+    
+    public IntVec(IntVec other) {
+        this.data = Arrays.copyOf(other.data, Math.max(other.size, 1));
+        this.size = other.size;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int get(int index) {
+        return data[index];
+    }
+    
+    public void set(int index, int value) {
+        data[index] = value;
+    }
+    
+    public void push(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+    
+    public int pop() {
+        return data[--size];
+    }
+    
+    public int last() {
+        return data[size - 1];
+    }
+    
+    /**
+     * Drop all elements from the given index on.
+     */
+    public void shrink(int newSize) {
+        size = newSize;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    /**
+     * Backing array, whose first size() elements are the contents.
+     * The array is replaced when the vector grows, so it must not be cached across pushes.
+     */
+    public int[] array() {
+        return data;
+    }
+    
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,244 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Learned clause management.
+ * Learned clauses are kept in three tiers by LBD: core clauses are kept forever, mid-tier clauses
+ * are kept as long as they keep taking part in conflict analysis, and local clauses compete on
+ * LBD and activity. Every reduction demotes unused mid-tier clauses and deletes the least useful
+ * part of the local tier, except for clauses that are currently reasons.
+ */
+public class LearnedClauseDatabase {
+    private static final float ACTIVITY_DECAY = 0.999f;
+    private static final float RESCALE_LIMIT = 1e20f;
+    
+    private final ClauseArena arena;
+    private final SolverConfig config;
+    
+    private final IntVec core = new IntVec();
+    private final IntVec mid = new IntVec();
+    private final IntVec local = new IntVec();
+    
+    private float activityIncrement = 1f;
+    
+    // Conflict count at which the next reduction is due
+    private long nextReduction;
+    private int reductions = 0;
+    
+    public LearnedClauseDatabase(ClauseArena arena, SolverConfig config) {
+        this.arena = arena;
+        this.config = config;
+        this.nextReduction = config.getReduceInterval();
+    }
+    
+    /**
+     * Register a freshly learned clause with its LBD.
+     */
+    public void add(int cref, int lbd) {
+        arena.setLbd(cref, lbd);
+        arena.setUsed(cref, true);
+        tierOf(lbd).push(cref);
+        bump(cref);
+    }
+    
+    /**
+     * Record that a learned clause took part in conflict analysis, where its LBD was recomputed.
+     */
+    public void onUsed(int cref, int lbd) {
+        bump(cref);
+        arena.setUsed(cref, true);
+        if (lbd < arena.lbd(cref)) {
+            arena.setLbd(cref, lbd);
+        }
+    }
+    
+    /**
+     * Decay the activity of all learned clauses; called once per conflict.
+     */
+    public void decayActivities() {
+        activityIncrement /= ACTIVITY_DECAY;
+    }
+    
+    /**
+     * Check if a reduction is due after the given number of conflicts.
+     */
+    public boolean shouldReduce(long conflicts) {
+        return conflicts >= nextReduction;
+    }
+    
+    /**
+     * Delete the least useful learned clauses. Clauses for which isLocked returns true are kept.
+     * Returns the number of deleted clauses.
+     */
+    public int reduce(IntPredicate isLocked) {
+        reductions++;
+        nextReduction += config.getReduceInterval() + (long) reductions * config.getReduceIntervalIncrement();
+        
+        // Re-tier clauses whose LBD improved and demote mid-tier clauses that were not used
+        List<Integer> candidates = new ArrayList<>();
+        IntVec keptMid = new IntVec(mid.size());
+        retier(core, keptMid, candidates);
+        retier(mid, keptMid, candidates);
+        retier(local, keptMid, candidates);
+        copy(keptMid, mid);
+        
+        // Worst clauses first: high LBD, then low activity
+        candidates.sort((a, b) -> {
+            int byLbd = Integer.compare(arena.lbd(b), arena.lbd(a));
+            return byLbd != 0 ? byLbd : Float.compare(arena.activity(a), arena.activity(b));
+        });
+        
+        int toDelete = (int) (candidates.size() * config.getReduceFraction());
+        int deleted = 0;
+        local.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            int cref = candidates.get(i);
+            if (deleted < toDelete && arena.size(cref) > 2 && !isLocked.test(cref)) {
+                arena.free(cref);
+                deleted++;
+            } else {
+                arena.setUsed(cref, false);
+                local.push(cref);
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * Append the references of all learned clauses that are not deleted to out.
+     */
+    public void collect(IntVec out) {
+        for (IntVec tier : new IntVec[] {core, mid, local}) {
+            for (int i = 0; i < tier.size(); i++) {
+                if (!arena.isDeleted(tier.get(i))) {
+                    out.push(tier.get(i));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Forget learned clauses that were deleted outside of {@link #reduce(IntPredicate)}.
+     */
+    public void removeDeleted() {
+        removeDeleted(core);
+        removeDeleted(mid);
+        removeDeleted(local);
+    }
+    
+    /**
+     * Translate clause references after the arena was compacted.
+     */
+    public void relocate(int[] forwarding) {
+        relocate(core, forwarding);
+        relocate(mid, forwarding);
+        relocate(local, forwarding);
+    }
+    
+    public int size() {
+        return core.size() + mid.size() + local.size();
+    }
+    
+    public int coreSize() {
+        return core.size();
+    }
+    
+    public int midSize() {
+        return mid.size();
+    }
+    
+    public int localSize() {
+        return local.size();
+    }
+    
+    private IntVec tierOf(int lbd) {
+        if (lbd <= config.getCoreLbd()) {
+            return core;
+        }
+        return lbd <= config.getMidLbd() ? mid : local;
+    }
+    
+    /**
+     * Distribute the clauses of a tier by their current LBD: core clauses stay in the core,
+     * mid-tier clauses used since the last reduction go to keptMid, everything else becomes a
+     * deletion candidate.
+     */
+    private void retier(IntVec tier, IntVec keptMid, List<Integer> candidates) {
+        int j = 0;
+        for (int i = 0; i < tier.size(); i++) {
+            int cref = tier.get(i);
+            if (arena.isDeleted(cref)) {
+                continue;
+            }
+            int lbd = arena.lbd(cref);
+            if (lbd <= config.getCoreLbd()) {
+                if (tier == core) {
+                    tier.set(j++, cref);
+                } else {
+                    core.push(cref);
+                }
+            } else if (lbd <= config.getMidLbd() && (arena.isUsed(cref) || tier != mid)) {
+                arena.setUsed(cref, false);
+                keptMid.push(cref);
+            } else {
+                candidates.add(cref);
+            }
+        }
+        if (tier == core) {
+            core.shrink(j);
+        }
+    }
+    
+    private void bump(int cref) {
+        float activity = arena.activity(cref) + activityIncrement;
+        arena.setActivity(cref, activity);
+        if (activity > RESCALE_LIMIT) {
+            rescale();
+        }
+    }
+    
+    private void rescale() {
+        rescale(core);
+        rescale(mid);
+        rescale(local);
+        activityIncrement *= 1 / RESCALE_LIMIT;
+    }
+    
+    private void rescale(IntVec tier) {
+        for (int i = 0; i < tier.size(); i++) {
+            int cref = tier.get(i);
+            arena.setActivity(cref, arena.activity(cref) * (1 / RESCALE_LIMIT));
+        }
+    }
+    
+    private void removeDeleted(IntVec tier) {
+        int j = 0;
+        for (int i = 0; i < tier.size(); i++) {
+            if (!arena.isDeleted(tier.get(i))) {
+                tier.set(j++, tier.get(i));
+            }
+        }
+        tier.shrink(j);
+    }
+    
+    private static void relocate(IntVec tier, int[] forwarding) {
+        int j = 0;
+        for (int i = 0; i < tier.size(); i++) {
+            int cref = forwarding[tier.get(i)];
+            if (cref != ClauseArena.NO_CLAUSE) {
+                tier.set(j++, cref);
+            }
+        }
+        tier.shrink(j);
+    }
+    
+    private static void copy(IntVec from, IntVec to) {
+        to.clear();
+        for (int i = 0; i < from.size(); i++) {
+            to.push(from.get(i));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Dense literal encoding used by the solver.
+ * Variable v (0-based) is encoded as 2v for the positive literal and 2v+1 for the negative one.
+ */
+public final class Lit {
+    private Lit() {
+    }
+    
+    /**
+     * Encode a literal of a variable.
+     */
+    public static int of(int var, boolean negative) {
+        return (var << 1) | (negative ? 1 : 0);
+    }
+    
+    /**
+     * Get the variable of a literal.
+     */
+    public static int var(int lit) {
+        return lit >> 1;
+    }
+    
+    /**
+     * Check if a literal is the negative literal of its variable.
+     */
+    public static boolean isNegative(int lit) {
+        return (lit & 1) != 0;
+    }
+    
+    /**
+     * Get the complementary literal.
+     */
+    public static int neg(int lit) {
+        return lit ^ 1;
+    }
+}
@@ -0,0 +1,57 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Restarts after a number of conflicts following the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...)
+ * scaled by a unit interval.
+ */
+public class LubyRestartPolicy implements RestartPolicy {
+    private final int unit;
+    
+    // Index of the current restart interval in the Luby sequence
+    private int restarts = 0;
+    private long conflictsSinceRestart = 0;
+    private long limit;
+    
+    public LubyRestartPolicy(int unit) {
+        this.unit = unit;
+        this.limit = unit * luby(0);
+    }
+    
+    @Override
+    public void onConflict(int lbd) {
+        conflictsSinceRestart++;
+    }
+    
+    @Override
+    public boolean shouldRestart() {
+        return conflictsSinceRestart >= limit;
+    }
+    
+    @Override
+    public void onRestart() {
+        restarts++;
+        conflictsSinceRestart = 0;
+        limit = unit * luby(restarts);
+    }
+    
+    /**
+     * Get the element of the Luby sequence at a 0-based index.
+     */
+    static long luby(int index) {
+        // Find the finite subsequence containing the index and its size
+        long size = 1;
+        int seq = 0;
+        while (size < index + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        
+        long x = index;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+}
@@ -0,0 +1,137 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parallel portfolio of {@link CDCLSolver}s that search the same clauses with different
+ * configurations, one thread each. The first solver to finish gives the answer and the others
+ * are interrupted. The expression is converted and preprocessed once, with the first
+ * configuration; the other solvers share the variable mapping and preprocessing results read-only
+ * and start from a copy of the preprocessed clauses. Short learned clauses are passed between the
+ * solvers through a {@link ClauseExchange}.
+ */
+public class PortfolioSolver {
+    // Number of recent clauses kept in the exchange
+    private static final int EXCHANGE_CAPACITY = 1 << 16;
+    
+    private final CDCLSolver[] solvers;
+    
+    // Index of the solver that answered the last call to solve, or -1
+    private int winner = -1;
+    
+    /**
+     * Create a portfolio of the given number of solvers with the configurations of
+     * {@link #diverseConfigs(int)}.
+     */
+    public PortfolioSolver(Expr cnfExpr, int threads) {
+        this(cnfExpr, diverseConfigs(threads));
+    }
+    
+    public PortfolioSolver(Expr cnfExpr, List<SolverConfig> configs) {
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio needs at least one configuration");
+        }
+        this.solvers = new CDCLSolver[configs.size()];
+        solvers[0] = new CDCLSolver(cnfExpr, configs.get(0));
+        for (int i = 1; i < solvers.length; i++) {
+            solvers[i] = new CDCLSolver(solvers[0], configs.get(i));
+        }
+        if (solvers.length > 1) {
+            ClauseExchange exchange = new ClauseExchange(EXCHANGE_CAPACITY);
+            for (int i = 0; i < solvers.length; i++) {
+                solvers[i].setClauseExchange(exchange, i);
+            }
+        }
+    }
+    
+    /**
+     * Create configurations that differ in random seed, restart strategy, phase selection and
+     * backtracking; the first one is the default configuration.
+     */
+    public static List<SolverConfig> diverseConfigs(int count) {
+        List<SolverConfig> configs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SolverConfig config = new SolverConfig();
+            config.setRandomSeed(i);
+            config.setTargetPhase(i % 2 == 0);
+            if (i % 3 == 1) {
+                config.setRestartStrategy(SolverConfig.RestartStrategy.LUBY);
+            }
+            config.setChronologicalBacktracking(i % 4 == 3);
+            configs.add(config);
+        }
+        return configs;
+    }
+    
+    /**
+     * Run all solvers in parallel until the first one finishes, and wait for the others to stop.
+     */
+    public boolean solve() {
+        ExecutorService pool = Executors.newFixedThreadPool(solvers.length);
+        CompletionService<Boolean> done = new ExecutorCompletionService<>(pool);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (CDCLSolver solver : solvers) {
+            solver.clearInterrupt();
+            futures.add(done.submit(solver::solve));
+        }
+        try {
+            Future<Boolean> first = done.take();
+            interruptAll();
+            for (int i = 1; i < solvers.length; i++) {
+                done.take();
+            }
+            winner = futures.indexOf(first);
+            return first.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Portfolio solver failed", e.getCause());
+        } finally {
+            interruptAll();
+            pool.shutdown();
+        }
+    }
+    
+    private void interruptAll() {
+        for (CDCLSolver solver : solvers) {
+            solver.interrupt();
+        }
+    }
+    
+    /**
+     * Get the index of the configuration whose solver answered the last call to solve, or -1.
+     */
+    public int getWinner() {
+        return winner;
+    }
+    
+    /**
+     * Get the model found by the last call to solve, or null if no model was found.
+     */
+    public Map<Long, Boolean> getModel() {
+        return winner < 0 ? null : solvers[winner].getModel();
+    }
+    
+    /**
+     * Get the counters of the solver that answered the last call to solve, or null.
+     */
+    public SolverStats getStats() {
+        return winner < 0 ? null : solvers[winner].getStats();
+    }
+    
+    /**
+     * Get the counters of every solver, in the order of the configurations, e.g. to compare the
+     * clauses they exported, imported and found useful.
+     */
+    public List<SolverStats> getAllStats() {
+        List<SolverStats> all = new ArrayList<>();
+        for (CDCLSolver solver : solvers) {
+            all.add(solver.getStats());
+        }
+        return all;
+    }
+}
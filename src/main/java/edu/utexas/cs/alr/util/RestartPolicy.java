@@ -0,0 +1,22 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Decides when the solver abandons its current decisions and restarts from level 0.
+ * Restarts keep learned clauses, variable activities and saved phases.
+ */
+public interface RestartPolicy {
+    /**
+     * Called after every conflict with the LBD of the clause learned from it.
+     */
+    void onConflict(int lbd);
+    
+    /**
+     * Check if the solver should restart before its next decision.
+     */
+    boolean shouldRestart();
+    
+    /**
+     * Called after the solver restarted.
+     */
+    void onRestart();
+}
@@ -3,9 +3,31 @@ package edu.utexas.cs.alr.util;
 import edu.utexas.cs.alr.ast.Expr;
 
 public class SatUtil {
+    /**
+     * Check satisfiability of an expression, which is Tseitin encoded if it is not in CNF.
+     */
     public static boolean checkSAT(Expr expr)
     {
         CDCLSolver solver = new CDCLSolver(expr);
         return solver.solve();
     }
+
+    /**
+     * Check satisfiability with a portfolio of differently configured solvers on the given
+     * number of threads, taking the answer of the first one to finish.
+     */
+    public static boolean checkSAT(Expr expr, int threads)
+    {
+        return new PortfolioSolver(expr, threads).solve();
+    }
+
+    /**
+     * Create an empty solver for a sequence of related queries: clauses and expressions are added
+     * over time and every call to solve may take assumptions, while learned clauses, activities
+     * and phases carry over between calls.
+     */
+    public static CDCLSolver newIncrementalSolver()
+    {
+        return new CDCLSolver(new SolverConfig());
+    }
 }
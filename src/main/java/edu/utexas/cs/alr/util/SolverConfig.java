@@ -0,0 +1,388 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Tunable options of {@link CDCLSolver}.
+ */
+public class SolverConfig {
+    public enum RestartStrategy {
+        NONE,
+        LUBY,
+        GLUCOSE
+    }
+    
+    private double varDecay = 0.95;
+    private boolean targetPhase = true;
+    
+    private RestartStrategy restartStrategy = RestartStrategy.GLUCOSE;
+    private int lubyUnit = 100;
+    private double glucoseMargin = 1.25;
+    private int glucoseMinConflicts = 50;
+    
+    private int reduceInterval = 2000;
+    private int reduceIntervalIncrement = 300;
+    private double reduceFraction = 0.5;
+    private int coreLbd = 2;
+    private int midLbd = 6;
+    
+    private boolean elimination = true;
+    private int eliminationGrowth = 0;
+    private int eliminationOccurrenceLimit = 16;
+    private int eliminationResolventLimit = 20;
+    
+    private boolean substitution = true;
+    
+    private boolean subsumption = true;
+    private int subsumeInterval = 20000;
+    private long subsumptionBudget = 20_000_000;
+    
+    private boolean probing = true;
+    private long probingBudget = 100_000;
+    
+    private boolean vivification = true;
+    private boolean vivifyOriginals = false;
+    private double vivificationEffort = 0.03;
+    
+    private boolean chronologicalBacktracking = false;
+    private int chronologicalThreshold = 100;
+    
+    private long randomSeed = 0;
+    
+    private int shareMaxLbd = 3;
+    private int shareMaxSize = 12;
+    
+    public double getVarDecay() {
+        return varDecay;
+    }
+    
+    /**
+     * Set the factor by which variable activities decay after every conflict, in (0, 1).
+     */
+    public void setVarDecay(double varDecay) {
+        this.varDecay = varDecay;
+    }
+    
+    public boolean isTargetPhase() {
+        return targetPhase;
+    }
+    
+    /**
+     * Decide the polarities of the longest conflict-free trail instead of the last saved ones.
+     */
+    public void setTargetPhase(boolean targetPhase) {
+        this.targetPhase = targetPhase;
+    }
+    
+    public RestartStrategy getRestartStrategy() {
+        return restartStrategy;
+    }
+    
+    public void setRestartStrategy(RestartStrategy restartStrategy) {
+        this.restartStrategy = restartStrategy;
+    }
+    
+    public int getLubyUnit() {
+        return lubyUnit;
+    }
+    
+    /**
+     * Set the number of conflicts that one unit of the Luby sequence stands for.
+     */
+    public void setLubyUnit(int lubyUnit) {
+        this.lubyUnit = lubyUnit;
+    }
+    
+    public double getGlucoseMargin() {
+        return glucoseMargin;
+    }
+    
+    /**
+     * Set how much the fast LBD average must exceed the slow one to trigger a restart.
+     */
+    public void setGlucoseMargin(double glucoseMargin) {
+        this.glucoseMargin = glucoseMargin;
+    }
+    
+    public int getGlucoseMinConflicts() {
+        return glucoseMinConflicts;
+    }
+    
+    /**
+     * Set the minimum number of conflicts between two restarts of the Glucose policy.
+     */
+    public void setGlucoseMinConflicts(int glucoseMinConflicts) {
+        this.glucoseMinConflicts = glucoseMinConflicts;
+    }
+    
+    public int getReduceInterval() {
+        return reduceInterval;
+    }
+    
+    /**
+     * Set the number of conflicts before the first reduction of the learned clause database.
+     */
+    public void setReduceInterval(int reduceInterval) {
+        this.reduceInterval = reduceInterval;
+    }
+    
+    public int getReduceIntervalIncrement() {
+        return reduceIntervalIncrement;
+    }
+    
+    /**
+     * Set by how many conflicts the interval between two reductions grows after each reduction.
+     */
+    public void setReduceIntervalIncrement(int reduceIntervalIncrement) {
+        this.reduceIntervalIncrement = reduceIntervalIncrement;
+    }
+    
+    public double getReduceFraction() {
+        return reduceFraction;
+    }
+    
+    /**
+     * Set the fraction of deletion candidates removed by each reduction.
+     */
+    public void setReduceFraction(double reduceFraction) {
+        this.reduceFraction = reduceFraction;
+    }
+    
+    public int getCoreLbd() {
+        return coreLbd;
+    }
+    
+    /**
+     * Set the highest LBD of learned clauses that are never deleted.
+     */
+    public void setCoreLbd(int coreLbd) {
+        this.coreLbd = coreLbd;
+    }
+    
+    public int getMidLbd() {
+        return midLbd;
+    }
+    
+    /**
+     * Set the highest LBD of learned clauses kept as long as they are used between reductions.
+     */
+    public void setMidLbd(int midLbd) {
+        this.midLbd = midLbd;
+    }
+    
+    public boolean isElimination() {
+        return elimination;
+    }
+    
+    /**
+     * Eliminate variables by bounded resolution before search.
+     */
+    public void setElimination(boolean elimination) {
+        this.elimination = elimination;
+    }
+    
+    public int getEliminationGrowth() {
+        return eliminationGrowth;
+    }
+    
+    /**
+     * Set by how many clauses eliminating a variable may increase the number of clauses.
+     */
+    public void setEliminationGrowth(int eliminationGrowth) {
+        this.eliminationGrowth = eliminationGrowth;
+    }
+    
+    public int getEliminationOccurrenceLimit() {
+        return eliminationOccurrenceLimit;
+    }
+    
+    /**
+     * Set the number of occurrences of both polarities above which a variable is not eliminated.
+     */
+    public void setEliminationOccurrenceLimit(int eliminationOccurrenceLimit) {
+        this.eliminationOccurrenceLimit = eliminationOccurrenceLimit;
+    }
+    
+    public int getEliminationResolventLimit() {
+        return eliminationResolventLimit;
+    }
+    
+    /**
+     * Set the length of the longest resolvent that variable elimination may add.
+     */
+    public void setEliminationResolventLimit(int eliminationResolventLimit) {
+        this.eliminationResolventLimit = eliminationResolventLimit;
+    }
+    
+    public boolean isSubstitution() {
+        return substitution;
+    }
+    
+    /**
+     * Substitute literals that are equivalent through binary clauses by one representative
+     * before search.
+     */
+    public void setSubstitution(boolean substitution) {
+        this.substitution = substitution;
+    }
+    
+    public boolean isSubsumption() {
+        return subsumption;
+    }
+    
+    /**
+     * Remove subsumed clauses and strengthen clauses by self-subsuming resolution, on the original
+     * clauses before search and on the learned clauses at restarts.
+     */
+    public void setSubsumption(boolean subsumption) {
+        this.subsumption = subsumption;
+    }
+    
+    public int getSubsumeInterval() {
+        return subsumeInterval;
+    }
+    
+    /**
+     * Set the minimum number of conflicts between two subsumption passes over the learned clauses.
+     */
+    public void setSubsumeInterval(int subsumeInterval) {
+        this.subsumeInterval = subsumeInterval;
+    }
+    
+    public long getSubsumptionBudget() {
+        return subsumptionBudget;
+    }
+    
+    /**
+     * Set the number of literal visits after which a subsumption pass stops.
+     */
+    public void setSubsumptionBudget(long subsumptionBudget) {
+        this.subsumptionBudget = subsumptionBudget;
+    }
+    
+    public boolean isProbing() {
+        return probing;
+    }
+    
+    /**
+     * Probe for failed literals and add hyper-binary resolvents before search.
+     */
+    public void setProbing(boolean probing) {
+        this.probing = probing;
+    }
+    
+    public long getProbingBudget() {
+        return probingBudget;
+    }
+    
+    /**
+     * Set the number of propagations after which probing stops.
+     */
+    public void setProbingBudget(long probingBudget) {
+        this.probingBudget = probingBudget;
+    }
+    
+    public boolean isVivification() {
+        return vivification;
+    }
+    
+    /**
+     * Vivify clauses at restarts.
+     */
+    public void setVivification(boolean vivification) {
+        this.vivification = vivification;
+    }
+    
+    public boolean isVivifyOriginals() {
+        return vivifyOriginals;
+    }
+    
+    /**
+     * Vivify original clauses too, after the learned ones.
+     */
+    public void setVivifyOriginals(boolean vivifyOriginals) {
+        this.vivifyOriginals = vivifyOriginals;
+    }
+    
+    public double getVivificationEffort() {
+        return vivificationEffort;
+    }
+    
+    /**
+     * Set the propagation budget of vivification at a restart, as a fraction of the propagations
+     * since vivification last ran.
+     */
+    public void setVivificationEffort(double vivificationEffort) {
+        this.vivificationEffort = vivificationEffort;
+    }
+    
+    public boolean isChronologicalBacktracking() {
+        return chronologicalBacktracking;
+    }
+    
+    /**
+     * Backtrack a single level after a conflict whose backjump would undo more levels than the
+     * chronological threshold, keeping the assignments of the levels in between.
+     */
+    public void setChronologicalBacktracking(boolean chronologicalBacktracking) {
+        this.chronologicalBacktracking = chronologicalBacktracking;
+    }
+    
+    public int getChronologicalThreshold() {
+        return chronologicalThreshold;
+    }
+    
+    /**
+     * Set the number of levels a backjump may undo before chronological backtracking is used.
+     */
+    public void setChronologicalThreshold(int chronologicalThreshold) {
+        this.chronologicalThreshold = chronologicalThreshold;
+    }
+    
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+    
+    /**
+     * Set the seed of the random initial activities and phases of the variables, e.g. to diversify
+     * the solvers of a portfolio; 0 keeps the deterministic initial order and phases.
+     */
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+    
+    public int getShareMaxLbd() {
+        return shareMaxLbd;
+    }
+    
+    /**
+     * Set the largest LBD of the learned clauses exported to other solvers of a portfolio;
+     * 0 disables exporting.
+     */
+    public void setShareMaxLbd(int shareMaxLbd) {
+        this.shareMaxLbd = shareMaxLbd;
+    }
+    
+    public int getShareMaxSize() {
+        return shareMaxSize;
+    }
+    
+    /**
+     * Set the largest number of literals of the learned clauses exported to other solvers.
+     */
+    public void setShareMaxSize(int shareMaxSize) {
+        this.shareMaxSize = shareMaxSize;
+    }
+    
+    /**
+     * Create the restart policy selected by this configuration, or null if restarts are disabled.
+     */
+    public RestartPolicy createRestartPolicy() {
+        switch (restartStrategy) {
+            case LUBY:
+                return new LubyRestartPolicy(lubyUnit);
+            case GLUCOSE:
+                return new GlucoseRestartPolicy(glucoseMargin, glucoseMinConflicts);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Counters collected by {@link CDCLSolver} during search.
+ */
+public class SolverStats {
+    // Variables and original clauses, the variables removed by preprocessing and the clauses left
+    int originalVars;
+    int originalClauses;
+    int eliminatedVars;
+    int substitutedVars;
+    int remainingClauses;
+    
+    // Clauses removed by subsumption and shortened by self-subsuming resolution
+    int subsumedClauses;
+    int strengthenedClauses;
+    
+    // Literals probed before search, those that failed, and the hyper-binary resolvents added
+    long probedLiterals;
+    long failedLiterals;
+    long hyperBinaryResolvents;
+    
+    // Clauses vivified at restarts, and how many of them were strengthened or removed
+    long vivifiedClauses;
+    long vivifyStrengthened;
+    long vivifyRemoved;
+    
+    long conflicts;
+    long decisions;
+    long propagations;
+    long restarts;
+    long reductions;
+    long deletedClauses;
+    
+    // Conflicts followed by a chronological backtrack, and conflicts below the current level that
+    // were missed implications
+    long chronologicalBacktracks;
+    long missedImplications;
+    
+    // Learned clauses exported to and imported from other solvers, the imports skipped as
+    // duplicates, and the imported clauses that asserted a unit or took part in conflict analysis
+    long exportedClauses;
+    long importedClauses;
+    long duplicateImports;
+    long usefulImports;
+    
+    // Watch visits of long clauses settled by their blocker literal, and those that read the clause
+    long blockerHits;
+    long clauseVisits;
+    
+    // Literals of learned clauses before minimization, and how many of them minimization removed
+    long learnedLiterals;
+    long minimizedLiterals;
+    
+    public int getOriginalVars() {
+        return originalVars;
+    }
+    
+    public int getOriginalClauses() {
+        return originalClauses;
+    }
+    
+    public int getEliminatedVars() {
+        return eliminatedVars;
+    }
+    
+    public int getSubstitutedVars() {
+        return substitutedVars;
+    }
+    
+    public int getRemainingClauses() {
+        return remainingClauses;
+    }
+    
+    public int getSubsumedClauses() {
+        return subsumedClauses;
+    }
+    
+    public int getStrengthenedClauses() {
+        return strengthenedClauses;
+    }
+    
+    public long getProbedLiterals() {
+        return probedLiterals;
+    }
+    
+    public long getFailedLiterals() {
+        return failedLiterals;
+    }
+    
+    public long getHyperBinaryResolvents() {
+        return hyperBinaryResolvents;
+    }
+    
+    public long getVivifiedClauses() {
+        return vivifiedClauses;
+    }
+    
+    public long getVivifyStrengthened() {
+        return vivifyStrengthened;
+    }
+    
+    public long getVivifyRemoved() {
+        return vivifyRemoved;
+    }
+    
+    public long getConflicts() {
+        return conflicts;
+    }
+    
+    public long getDecisions() {
+        return decisions;
+    }
+    
+    public long getPropagations() {
+        return propagations;
+    }
+    
+    public long getRestarts() {
+        return restarts;
+    }
+    
+    public long getReductions() {
+        return reductions;
+    }
+    
+    public long getDeletedClauses() {
+        return deletedClauses;
+    }
+    
+    public long getChronologicalBacktracks() {
+        return chronologicalBacktracks;
+    }
+    
+    public long getMissedImplications() {
+        return missedImplications;
+    }
+    
+    public long getExportedClauses() {
+        return exportedClauses;
+    }
+    
+    public long getImportedClauses() {
+        return importedClauses;
+    }
+    
+    public long getDuplicateImports() {
+        return duplicateImports;
+    }
+    
+    public long getUsefulImports() {
+        return usefulImports;
+    }
+    
+    public long getBlockerHits() {
+        return blockerHits;
+    }
+    
+    public long getClauseVisits() {
+        return clauseVisits;
+    }
+    
+    /**
+     * Fraction of long clause watch visits that were settled by the blocker literal.
+     */
+    public double getBlockerHitRate() {
+        long visits = blockerHits + clauseVisits;
+        return visits == 0 ? 0 : (double) blockerHits / visits;
+    }
+    
+    public long getLearnedLiterals() {
+        return learnedLiterals;
+    }
+    
+    public long getMinimizedLiterals() {
+        return minimizedLiterals;
+    }
+    
+    /**
+     * Average number of literals removed from a learned clause by minimization.
+     */
+    public double getMinimizedLiteralsPerConflict() {
+        return conflicts == 0 ? 0 : (double) minimizedLiterals / conflicts;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("vars: %d, substituted: %d, eliminated: %d, clauses: %d -> %d%n"
+                             + "subsumed clauses: %d, strengthened clauses: %d%n"
+                             + "probed literals: %d, failed: %d, hyper-binary resolvents: %d%n"
+                             + "vivified clauses: %d, strengthened: %d, removed: %d%n"
+                             + "conflicts: %d, decisions: %d, propagations: %d, restarts: %d%n"
+                             + "reductions: %d, deleted clauses: %d%n"
+                             + "chronological backtracks: %d, missed implications: %d%n"
+                             + "exported clauses: %d, imported: %d, duplicates: %d, useful: %d%n"
+                             + "blocker hits: %d, clause visits: %d (%.1f%% blocked)%n"
+                             + "learned literals: %d, minimized literals: %d (%.2f per conflict)",
+                             originalVars, substitutedVars, eliminatedVars,
+                             originalClauses, remainingClauses,
+                             subsumedClauses, strengthenedClauses,
+                             probedLiterals, failedLiterals, hyperBinaryResolvents,
+                             vivifiedClauses, vivifyStrengthened, vivifyRemoved,
+                             conflicts, decisions, propagations, restarts,
+                             reductions, deletedClauses,
+                             chronologicalBacktracks, missedImplications,
+                             exportedClauses, importedClauses, duplicateImports, usefulImports,
+                             blockerHits, clauseVisits, 100 * getBlockerHitRate(),
+                             learnedLiterals, minimizedLiterals, getMinimizedLiteralsPerConflict());
+    }
+}
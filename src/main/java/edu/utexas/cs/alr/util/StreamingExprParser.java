@@ -0,0 +1,266 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+
+/**
+ * Hand-written parser for the S-expression syntax of Expr.g4, an alternative to the ANTLR front
+ * end of {@link ExprUtils#parseFrom(InputStream)}. It scans the bytes of a buffer in place, e.g.
+ * of a memory-mapped file, and builds every expression through ExprFactory as soon as its closing
+ * parenthesis is read, without tokens or a parse tree. Nesting is tracked with explicit stacks of
+ * the open parentheses and the finished operands, so deeply nested input needs no call stack.
+ * Unlike the ANTLR parser, input after the expression is an error rather than ignored.
+ * Syntax errors throw ParseCancellationException with the line and column, as the ANTLR front
+ * end does.
+ */
+public class StreamingExprParser {
+    // Operator of an open parenthesis; UNKNOWN until the token after it is read, and GROUP for a
+    // parenthesized expression without an operator
+    private static final byte UNKNOWN = 0;
+    private static final byte GROUP = 1;
+    private static final byte NOT = 2;
+    private static final byte AND = 3;
+    private static final byte OR = 4;
+    private static final byte IMPL = 5;
+    private static final byte EQUIV = 6;
+    
+    private static final byte[][] KEYWORDS = {
+        null, null, bytes("not"), bytes("and"), bytes("or"), bytes("impl"), bytes("equiv")
+    };
+    
+    private final ByteBuffer buffer;
+    private int pos;
+    
+    // Open parentheses: their operator and the number of operands before them
+    private byte[] ops = new byte[64];
+    private int[] bases = new int[64];
+    private int depth = 0;
+    
+    // Finished operands of the open parentheses, innermost last
+    private Expr[] operands = new Expr[64];
+    private int numOperands = 0;
+    
+    private StreamingExprParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.pos = buffer.position();
+    }
+    
+    /**
+     * Parse the expression in the remaining bytes of a buffer, which are not modified.
+     */
+    public static Expr parse(ByteBuffer buffer) {
+        return new StreamingExprParser(buffer).parseExpr();
+    }
+    
+    /**
+     * Parse the expression in a file, which is memory-mapped rather than read.
+     */
+    public static Expr parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Parse the expression in the rest of a stream, which is read into memory first.
+     */
+    public static Expr parse(InputStream in) throws IOException {
+        return parse(ByteBuffer.wrap(in.readAllBytes()));
+    }
+    
+    private Expr parseExpr() {
+        int limit = buffer.limit();
+        while (true) {
+            while (pos < limit && isWhitespace(buffer.get(pos))) {
+                pos++;
+            }
+            if (depth == 0 && numOperands == 1) {
+                if (pos < limit) {
+                    throw error("extraneous input after the expression");
+                }
+                return operands[0];
+            }
+            if (pos == limit) {
+                throw error("unexpected end of input");
+            }
+            
+            byte c = buffer.get(pos);
+            if (c == '(') {
+                startOperand();
+                open();
+                pos++;
+            } else if (c == ')') {
+                close();
+                pos++;
+            } else if (c == 'x') {
+                startOperand();
+                push(mkVAR(readVarId()));
+            } else {
+                readOperator();
+            }
+        }
+    }
+    
+    /**
+     * Check that an operand may start here, which makes a parenthesis whose first token it is a
+     * group.
+     */
+    private void startOperand() {
+        if (depth == 0) {
+            return;
+        }
+        if (ops[depth - 1] == UNKNOWN) {
+            ops[depth - 1] = GROUP;
+        } else if (numOperands - bases[depth - 1] == arity(ops[depth - 1])) {
+            throw error("too many operands");
+        }
+    }
+    
+    private void open() {
+        if (depth == ops.length) {
+            ops = Arrays.copyOf(ops, 2 * depth);
+            bases = Arrays.copyOf(bases, 2 * depth);
+        }
+        ops[depth] = UNKNOWN;
+        bases[depth] = numOperands;
+        depth++;
+    }
+    
+    /**
+     * Replace the operands of the innermost parenthesis by the expression it closes.
+     */
+    private void close() {
+        if (depth == 0) {
+            throw error("unmatched ')'");
+        }
+        byte op = ops[depth - 1];
+        if (op == UNKNOWN) {
+            throw error("empty parentheses");
+        }
+        int base = bases[depth - 1];
+        if (numOperands - base != arity(op)) {
+            throw error("missing operand");
+        }
+        Expr first = operands[base];
+        Expr second = arity(op) == 2 ? operands[base + 1] : null;
+        numOperands = base;
+        depth--;
+        switch (op) {
+            case NOT:
+                push(mkNEG(first));
+                break;
+            case AND:
+                push(mkAND(first, second));
+                break;
+            case OR:
+                push(mkOR(first, second));
+                break;
+            case IMPL:
+                push(mkIMPL(first, second));
+                break;
+            case EQUIV:
+                push(mkEQUIV(first, second));
+                break;
+            default:
+                push(first);
+        }
+    }
+    
+    private void push(Expr expr) {
+        if (numOperands == operands.length) {
+            operands = Arrays.copyOf(operands, 2 * numOperands);
+        }
+        operands[numOperands++] = expr;
+    }
+    
+    /**
+     * Read a variable, 'x' followed by a positive decimal id without leading zeros.
+     */
+    private long readVarId() {
+        int limit = buffer.limit();
+        pos++;
+        if (pos == limit || buffer.get(pos) < '1' || buffer.get(pos) > '9') {
+            throw error("malformed variable");
+        }
+        long id = 0;
+        while (pos < limit && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+            int digit = buffer.get(pos) - '0';
+            if (id > (Long.MAX_VALUE - digit) / 10) {
+                throw error("variable id too large");
+            }
+            id = 10 * id + digit;
+            pos++;
+        }
+        return id;
+    }
+    
+    /**
+     * Read the operator keyword right after an open parenthesis.
+     */
+    private void readOperator() {
+        for (byte op = NOT; op <= EQUIV; op++) {
+            if (startsWith(KEYWORDS[op])) {
+                if (depth == 0 || ops[depth - 1] != UNKNOWN) {
+                    throw error("unexpected '" + new String(KEYWORDS[op], StandardCharsets.US_ASCII) + "'");
+                }
+                ops[depth - 1] = op;
+                pos += KEYWORDS[op].length;
+                return;
+            }
+        }
+        throw error("unexpected character '" + (char) (buffer.get(pos) & 0xff) + "'");
+    }
+    
+    private boolean startsWith(byte[] keyword) {
+        if (buffer.limit() - pos < keyword.length) {
+            return false;
+        }
+        for (int k = 0; k < keyword.length; k++) {
+            if (buffer.get(pos + k) != keyword[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int arity(byte op) {
+        return op == AND || op == OR || op == IMPL || op == EQUIV ? 2 : 1;
+    }
+    
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+    
+    private static byte[] bytes(String keyword) {
+        return keyword.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * Create the exception for a syntax error at the current position; its line and column are
+     * only computed here, so scanning does not track them.
+     */
+    private ParseCancellationException error(String message) {
+        int line = 1;
+        int column = 0;
+        for (int i = buffer.position(); i < pos; i++) {
+            if (buffer.get(i) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        return new ParseCancellationException("line " + line + ":" + column + " " + message);
+    }
+}
@@ -0,0 +1,250 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Backward subsumption and self-subsuming resolution over clauses in a {@link ClauseArena}.
+ * Every clause in turn, shortest first, removes the candidate clauses it subsumes and strengthens
+ * the candidates it resolves with into a subset of themselves, by deleting the clashing literal.
+ * Candidates are found through the occurrence list of the literal of the subsuming clause with the
+ * fewest occurrences, and most pairs are rejected by comparing 64-bit signatures of the variables
+ * of the two clauses before their literals are looked at.
+ */
+public class Subsumer {
+    private static final int SUBSUMED = -1;
+    private static final int NONE = -2;
+    
+    private final ClauseArena arena;
+    private int numVars;
+    
+    // Occurrence lists: literal -> indices of candidate clauses containing it; strengthening
+    // removes the entry of the deleted literal, so the counts stay exact
+    private IntVec[] occurs;
+    
+    // Literal marks of the clause being checked against
+    private int[] marks;
+    private int stamp = 0;
+    
+    private int subsumed;
+    private int strengthened;
+    
+    public Subsumer(ClauseArena arena, int numVars) {
+        this.arena = arena;
+        this.numVars = numVars;
+        this.occurs = new IntVec[2 * numVars];
+        this.marks = new int[2 * numVars];
+    }
+    
+    /**
+     * Make room for variables below the given capacity.
+     */
+    public void grow(int capacity) {
+        this.numVars = capacity;
+        this.occurs = Arrays.copyOf(occurs, 2 * capacity);
+        this.marks = Arrays.copyOf(marks, 2 * capacity);
+    }
+    
+    /**
+     * Remove subsumed clauses from the candidates and strengthen them by self-subsuming
+     * resolution. Both the candidates and the additional clauses may subsume or strengthen
+     * candidates; the additional clauses themselves are left unchanged.
+     * Candidates for which isLocked returns true are left alone; subsumed ones are freed and
+     * dropped from the candidates, strengthened ones are shrunk in place and pushed to
+     * strengthenedOut.
+     * At most budget literal visits are spent.
+     * Returns false if a candidate was strengthened into the empty clause.
+     */
+    public boolean run(IntVec candidates, IntVec additional, IntPredicate isLocked,
+                       IntVec strengthenedOut, long budget) {
+        int numCandidates = candidates.size();
+        int total = numCandidates + additional.size();
+        int[] crefs = new int[total];
+        long[] signatures = new long[total];
+        boolean[] removed = new boolean[total];
+        boolean[] queued = new boolean[total];
+        boolean[] shrunk = new boolean[total];
+        for (int i = 0; i < total; i++) {
+            crefs[i] = i < numCandidates ? candidates.get(i) : additional.get(i - numCandidates);
+            signatures[i] = signature(crefs[i]);
+        }
+        for (int lit = 0; lit < 2 * numVars; lit++) {
+            if (occurs[lit] == null) {
+                occurs[lit] = new IntVec(4);
+            }
+            occurs[lit].clear();
+        }
+        for (int i = 0; i < numCandidates; i++) {
+            for (int k = 0; k < arena.size(crefs[i]); k++) {
+                occurs[arena.lit(crefs[i], k)].push(i);
+            }
+        }
+        
+        // Shortest clauses first; strengthened candidates are queued again
+        IntVec queue = new IntVec(total);
+        for (int i = 0; i < total; i++) {
+            queue.push(i);
+            queued[i] = true;
+        }
+        sortBySize(queue, crefs);
+        
+        boolean consistent = true;
+        for (int head = 0; head < queue.size() && consistent && budget > 0; head++) {
+            int s = queue.get(head);
+            queued[s] = false;
+            if (removed[s]) {
+                continue;
+            }
+            int subsumer = crefs[s];
+            int size = arena.size(subsumer);
+            int pivot = rarestLiteral(subsumer);
+            
+            for (int round = 0; round < 2 && consistent; round++) {
+                IntVec list = occurs[round == 0 ? pivot : Lit.neg(pivot)];
+                for (int i = 0; i < list.size(); i++) {
+                    int c = list.get(i);
+                    int cref = crefs[c];
+                    if (c == s || removed[c] || arena.size(cref) < size
+                        || (signatures[s] & ~signatures[c]) != 0 || isLocked.test(cref)) {
+                        continue;
+                    }
+                    budget -= size + arena.size(cref);
+                    int result = check(subsumer, cref);
+                    if (result == SUBSUMED) {
+                        removed[c] = true;
+                        arena.free(cref);
+                        subsumed++;
+                    } else if (result != NONE) {
+                        removeLiteral(cref, result);
+                        budget -= removeOccurrence(result, c);
+                        if (list == occurs[result]) {
+                            i--; // The next entry moved into position i
+                        }
+                        signatures[c] = signature(cref);
+                        strengthened++;
+                        if (arena.size(cref) == 0) {
+                            consistent = false;
+                            break;
+                        }
+                        shrunk[c] = true;
+                        if (!queued[c]) {
+                            queue.push(c);
+                            queued[c] = true;
+                        }
+                    }
+                }
+            }
+        }
+        
+        int j = 0;
+        for (int i = 0; i < numCandidates; i++) {
+            if (!removed[i]) {
+                candidates.set(j++, crefs[i]);
+                if (shrunk[i]) {
+                    strengthenedOut.push(crefs[i]);
+                }
+            }
+        }
+        candidates.shrink(j);
+        return consistent;
+    }
+    
+    public int getSubsumed() {
+        return subsumed;
+    }
+    
+    public int getStrengthened() {
+        return strengthened;
+    }
+    
+    /**
+     * Check if clause s subsumes clause c, or resolves with it on one literal into a subset of c.
+     * Returns SUBSUMED, the literal of c to remove, or NONE.
+     */
+    private int check(int s, int c) {
+        stamp++;
+        for (int k = 0; k < arena.size(c); k++) {
+            marks[arena.lit(c, k)] = stamp;
+        }
+        int flipped = SUBSUMED;
+        for (int k = 0; k < arena.size(s); k++) {
+            int lit = arena.lit(s, k);
+            if (marks[lit] == stamp) {
+                continue;
+            }
+            if (flipped == SUBSUMED && marks[Lit.neg(lit)] == stamp) {
+                flipped = Lit.neg(lit);
+            } else {
+                return NONE;
+            }
+        }
+        // A tautological s contains both polarities and only resolves into a tautology
+        for (int k = 0; flipped != SUBSUMED && k < arena.size(s); k++) {
+            if (arena.lit(s, k) == flipped) {
+                return NONE;
+            }
+        }
+        return flipped;
+    }
+    
+    private void removeLiteral(int cref, int lit) {
+        int size = arena.size(cref);
+        for (int k = 0; k < size; k++) {
+            if (arena.lit(cref, k) == lit) {
+                arena.setLit(cref, k, arena.lit(cref, size - 1));
+                break;
+            }
+        }
+        arena.shrink(cref, size - 1);
+    }
+    
+    /**
+     * Remove candidate c from the occurrence list of a literal, keeping the order of the other
+     * entries. Returns the number of entries looked at.
+     */
+    private int removeOccurrence(int lit, int c) {
+        IntVec list = occurs[lit];
+        int[] entries = list.array();
+        for (int i = 0; i < list.size(); i++) {
+            if (entries[i] == c) {
+                System.arraycopy(entries, i + 1, entries, i, list.size() - i - 1);
+                list.shrink(list.size() - 1);
+                return i + 1;
+            }
+        }
+        return list.size();
+    }
+    
+    private int rarestLiteral(int cref) {
+        int best = arena.lit(cref, 0);
+        int bestCount = Integer.MAX_VALUE;
+        for (int k = 0; k < arena.size(cref); k++) {
+            int lit = arena.lit(cref, k);
+            int count = occurs[lit].size() + occurs[Lit.neg(lit)].size();
+            if (count < bestCount) {
+                best = lit;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+    
+    private long signature(int cref) {
+        long signature = 0;
+        for (int k = 0; k < arena.size(cref); k++) {
+            signature |= 1L << (Lit.var(arena.lit(cref, k)) & 63);
+        }
+        return signature;
+    }
+    
+    private void sortBySize(IntVec indices, int[] crefs) {
+        Integer[] boxed = new Integer[indices.size()];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = indices.get(i);
+        }
+        Arrays.sort(boxed, (a, b) -> Integer.compare(arena.size(crefs[a]), arena.size(crefs[b])));
+        for (int i = 0; i < boxed.length; i++) {
+            indices.set(i, boxed[i]);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.*;
+
+import java.util.*;
+
+/**
+ * Incremental Tseitin encoding session on top of an incremental {@link CDCLSolver}.
+ * Every compound subexpression gets an auxiliary variable the first time it is encoded, and the
+ * clauses defining that variable as equivalent to the subexpression are added to the solver once.
+ * Expressions are hash-consed by {@link ExprFactory}, so the encodings are cached by identity and a
+ * formula that shares subexpressions with earlier ones only encodes the new part. Negations reuse
+ * the literal of their operand.
+ * Assertions are scoped: {@link #push()} opens a scope with a fresh activation literal that guards
+ * the assertions made in it and is assumed while the scope is open; {@link #pop()} disables them
+ * for good by asserting the negated activation literal. Definitions are not scoped, since they
+ * only constrain their own auxiliary variables, and stay cached across scopes.
+ */
+public class TseitinEncoder {
+    private final CDCLSolver solver;
+    
+    // Literal of every encoded subexpression, as a signed variable id of the solver
+    private final Map<Expr, Long> literals = new IdentityHashMap<>();
+    private int definitions = 0;
+    
+    // Adds the defining clauses of gates to the solver, over signed variable ids
+    private final TseitinGates.ClauseSink sink = new TseitinGates.ClauseSink() {
+        @Override
+        public long neg(long lit) {
+            return -lit;
+        }
+        
+        @Override
+        public void clause(long first, long second) {
+            solver.addClause(first, second);
+        }
+        
+        @Override
+        public void clause(long first, long second, long third) {
+            solver.addClause(first, second, third);
+        }
+    };
+    
+    // Activation variable of every open scope, innermost last
+    private final List<Long> scopes = new ArrayList<>();
+    
+    public TseitinEncoder(CDCLSolver solver) {
+        this.solver = solver;
+    }
+    
+    /**
+     * Assert an expression in the innermost open scope, or permanently if no scope is open.
+     * Returns false if the solver's clauses are now known to be unsatisfiable.
+     */
+    public boolean assertExpr(Expr expr) {
+        long lit = literalOf(expr);
+        if (scopes.isEmpty()) {
+            return solver.addClause(lit);
+        }
+        return solver.addClause(lit, -scopes.get(scopes.size() - 1));
+    }
+    
+    /**
+     * Open a new assertion scope.
+     */
+    public void push() {
+        scopes.add(solver.newVarId());
+    }
+    
+    /**
+     * Close the innermost scope and retract the assertions made in it.
+     */
+    public void pop() {
+        if (scopes.isEmpty()) {
+            throw new IllegalStateException("No scope to pop");
+        }
+        solver.addClause(-scopes.remove(scopes.size() - 1));
+    }
+    
+    public int getScopeDepth() {
+        return scopes.size();
+    }
+    
+    /**
+     * Check the assertions of all open scopes under additional assumptions, given as signed
+     * variable ids or literals returned by {@link #literalOf(Expr)}.
+     */
+    public boolean solve(long... assumptions) {
+        long[] all = new long[scopes.size() + assumptions.length];
+        for (int i = 0; i < scopes.size(); i++) {
+            all[i] = scopes.get(i);
+        }
+        System.arraycopy(assumptions, 0, all, scopes.size(), assumptions.length);
+        return solver.solve(all);
+    }
+    
+    /**
+     * Get the assumptions passed to the last call to {@link #solve(long...)} that made the
+     * assertions unsatisfiable; activation literals of scopes are left out.
+     */
+    public Set<Long> getFailedAssumptions() {
+        Set<Long> failed = solver.getFailedAssumptions();
+        failed.removeAll(scopes);
+        return failed;
+    }
+    
+    /**
+     * Get the literal equivalent to an expression, encoding the subexpressions not encoded yet.
+     * Subexpressions are visited with an explicit stack, operands before their parents.
+     */
+    public long literalOf(Expr expr) {
+        Long cached = literals.get(expr);
+        if (cached != null) {
+            return cached;
+        }
+        Deque<Expr> stack = new ArrayDeque<>();
+        stack.push(expr);
+        while (!stack.isEmpty()) {
+            Expr e = stack.peek();
+            if (literals.containsKey(e)) {
+                stack.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (Expr operand : operands(e)) {
+                if (!literals.containsKey(operand)) {
+                    stack.push(operand);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                literals.put(e, encode(e));
+            }
+        }
+        return literals.get(expr);
+    }
+    
+    /**
+     * Number of auxiliary variables defined so far, i.e. of distinct compound subexpressions
+     * other than negations.
+     */
+    public int getDefinitionCount() {
+        return definitions;
+    }
+    
+    public CDCLSolver getSolver() {
+        return solver;
+    }
+    
+    /**
+     * Encode an expression whose operands are encoded, adding the defining clauses of its
+     * auxiliary variable.
+     */
+    private long encode(Expr e) {
+        switch (e.getKind()) {
+            case VAR:
+                return ((VarExpr) e).getId();
+            case NEG:
+                return -literals.get(((NegExpr) e).getExpr());
+            default:
+                break;
+        }
+        long a = literals.get(TseitinGates.operand(e, 0));
+        long b = literals.get(TseitinGates.operand(e, 1));
+        long x = solver.newVarId();
+        definitions++;
+        TseitinGates.define(e.getKind(), x, a, b, sink);
+        return x;
+    }
+    
+    private static Expr[] operands(Expr e) {
+        switch (e.getKind()) {
+            case VAR:
+                return new Expr[0];
+            case NEG:
+                return new Expr[] {((NegExpr) e).getExpr()};
+            default:
+                return new Expr[] {TseitinGates.operand(e, 0), TseitinGates.operand(e, 1)};
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.*;
+
+/**
+ * Clauses defining the auxiliary variable of a Tseitin encoded gate, shared by the encoders that
+ * write them to an arena and to an incremental solver. Literals are longs in the encoding of the
+ * caller, which the sink negates and stores.
+ */
+final class TseitinGates {
+    private TseitinGates() {
+    }
+    
+    /**
+     * Receives the clauses of a gate over literals of its own encoding.
+     */
+    interface ClauseSink {
+        long neg(long lit);
+        
+        void clause(long first, long second);
+        
+        void clause(long first, long second, long third);
+    }
+    
+    /**
+     * Add the clauses that make x equivalent to the binary operator of kind applied to a and b.
+     */
+    static void define(Expr.ExprKind kind, long x, long a, long b, ClauseSink sink) {
+        switch (kind) {
+            case AND:
+                sink.clause(sink.neg(x), a);
+                sink.clause(sink.neg(x), b);
+                sink.clause(x, sink.neg(a), sink.neg(b));
+                break;
+            case OR:
+                sink.clause(sink.neg(x), a, b);
+                sink.clause(x, sink.neg(a));
+                sink.clause(x, sink.neg(b));
+                break;
+            case IMPL:
+                sink.clause(sink.neg(x), sink.neg(a), b);
+                sink.clause(x, a);
+                sink.clause(x, sink.neg(b));
+                break;
+            case EQUIV:
+                sink.clause(sink.neg(x), sink.neg(a), b);
+                sink.clause(sink.neg(x), a, sink.neg(b));
+                sink.clause(x, a, b);
+                sink.clause(x, sink.neg(a), sink.neg(b));
+                break;
+            default:
+                throw new IllegalArgumentException("No binary operator: " + kind);
+        }
+    }
+    
+    /**
+     * Get the left (index 0) or right (index 1) operand of a binary operator; the antecedent and
+     * consequent of an implication.
+     */
+    static Expr operand(Expr e, int index) {
+        switch (e.getKind()) {
+            case AND:
+                return index == 0 ? ((AndExpr) e).getLeft() : ((AndExpr) e).getRight();
+            case OR:
+                return index == 0 ? ((OrExpr) e).getLeft() : ((OrExpr) e).getRight();
+            case IMPL:
+                return index == 0 ? ((ImplExpr) e).getAntecedent()
+                                  : ((ImplExpr) e).getConsequent();
+            case EQUIV:
+                return index == 0 ? ((EquivExpr) e).getLeft() : ((EquivExpr) e).getRight();
+            default:
+                throw new IllegalArgumentException("No binary operator: " + e.getKind());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Exponential VSIDS branching heuristic.
+ * Variables involved in conflicts get their activity bumped by an increment that grows
+ * geometrically after every conflict, which decays older bumps relative to newer ones.
+ * Activities are rescaled before they overflow.
+ */
+public class VSIDS {
+    private static final double RESCALE_LIMIT = 1e100;
+    
+    private double[] activity;
+    private final VarHeap heap;
+    private final double decay;
+    private double increment = 1.0;
+    
+    public VSIDS(int numVars, double decay) {
+        this.activity = new double[numVars];
+        this.heap = new VarHeap(activity);
+        this.decay = decay;
+        for (int var = 0; var < numVars; var++) {
+            heap.insert(var);
+        }
+    }
+    
+    /**
+     * Make room for variables below the given capacity. New variables are not branched on until
+     * they are included.
+     */
+    public void grow(int capacity) {
+        activity = Arrays.copyOf(activity, capacity);
+        heap.grow(activity);
+    }
+    
+    /**
+     * Give every variable a random initial activity far below the first bump, which only changes
+     * the branching order among variables that were not bumped yet.
+     */
+    public void randomize(Random random) {
+        for (int var = 0; var < activity.length; var++) {
+            activity[var] = random.nextDouble() * increment * 1e-3;
+            heap.increased(var);
+        }
+    }
+    
+    /**
+     * Increase the activity of a variable seen during conflict analysis.
+     */
+    public void bump(int var) {
+        activity[var] += increment;
+        if (activity[var] > RESCALE_LIMIT) {
+            rescale();
+        }
+        heap.increased(var);
+    }
+    
+    /**
+     * Decay all activities by growing the bump increment; called once per conflict.
+     */
+    public void decayActivities() {
+        increment /= decay;
+        if (increment > RESCALE_LIMIT) {
+            rescale();
+        }
+    }
+    
+    /**
+     * Make a variable available for branching again after it was unassigned.
+     */
+    public void onUnassign(int var) {
+        heap.insert(var);
+    }
+    
+    /**
+     * Start branching on a variable added to the solver.
+     */
+    public void include(int var) {
+        heap.insert(var);
+    }
+    
+    /**
+     * Stop branching on a variable, e.g. because it was eliminated from the clauses.
+     */
+    public void exclude(int var) {
+        heap.remove(var);
+    }
+    
+    /**
+     * Pick the unassigned variable with the highest activity, or -1 if all are assigned.
+     */
+    public int pickBranchVariable(ImplicationGraph graph) {
+        while (!heap.isEmpty()) {
+            int var = heap.removeMax();
+            if (!graph.isAssigned(var)) {
+                return var;
+            }
+        }
+        return -1;
+    }
+    
+    public double getActivity(int var) {
+        return activity[var];
+    }
+    
+    private void rescale() {
+        for (int var = 0; var < activity.length; var++) {
+            activity[var] *= 1 / RESCALE_LIMIT;
+        }
+        increment *= 1 / RESCALE_LIMIT;
+    }
+}
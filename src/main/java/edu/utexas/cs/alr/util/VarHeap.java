@@ -0,0 +1,146 @@
+package edu.utexas.cs.alr.util;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary max-heap of variables ordered by an external activity array.
+ * The position of every variable is tracked so that membership tests are O(1) and
+ * re-insertion or an activity increase is O(log n).
+ */
+public class VarHeap {
+    private double[] activity;
+    
+    // Heap of variables; the children of position i are at 2i+1 and 2i+2
+    private int[] heap;
+    private int size;
+    
+    // Position of each variable in the heap, or -1 if it is not in the heap
+    private int[] positions;
+    
+    public VarHeap(double[] activity) {
+        this.activity = activity;
+        this.heap = new int[activity.length];
+        this.positions = new int[activity.length];
+        Arrays.fill(positions, -1);
+    }
+    
+    /**
+     * Switch to a longer activity array, making room for the variables it adds.
+     */
+    public void grow(double[] activity) {
+        int oldCapacity = positions.length;
+        this.activity = activity;
+        this.heap = Arrays.copyOf(heap, activity.length);
+        this.positions = Arrays.copyOf(positions, activity.length);
+        Arrays.fill(positions, oldCapacity, positions.length, -1);
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean contains(int var) {
+        return positions[var] >= 0;
+    }
+    
+    public void insert(int var) {
+        if (contains(var)) {
+            return;
+        }
+        heap[size] = var;
+        positions[var] = size;
+        size++;
+        siftUp(positions[var]);
+    }
+    
+    /**
+     * Restore the heap order after the activity of a variable increased.
+     */
+    public void increased(int var) {
+        if (contains(var)) {
+            siftUp(positions[var]);
+        }
+    }
+    
+    /**
+     * Restore the heap order after the activity of a variable decreased.
+     */
+    public void decreased(int var) {
+        if (contains(var)) {
+            siftDown(positions[var]);
+        }
+    }
+    
+    /**
+     * Remove a variable from the heap if it is in it.
+     */
+    public void remove(int var) {
+        int pos = positions[var];
+        if (pos < 0) {
+            return;
+        }
+        int last = heap[--size];
+        positions[var] = -1;
+        if (pos < size) {
+            heap[pos] = last;
+            positions[last] = pos;
+            siftUp(pos);
+            siftDown(positions[last]);
+        }
+    }
+    
+    /**
+     * Remove and return the variable with the highest activity.
+     */
+    public int removeMax() {
+        int max = heap[0];
+        int last = heap[--size];
+        positions[max] = -1;
+        if (size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return max;
+    }
+    
+    private void siftUp(int pos) {
+        int var = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            if (activity[heap[parent]] >= activity[var]) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            positions[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = var;
+        positions[var] = pos;
+    }
+    
+    private void siftDown(int pos) {
+        int var = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[var]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            positions[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = var;
+        positions[var] = pos;
+    }
+}
@@ -0,0 +1,309 @@
+package edu.utexas.cs.alr.util;
+
+/**
+ * Bounded variable elimination (SatELite style) on the original clauses before search.
+ * A variable is eliminated by replacing the clauses containing it with all their non-tautological
+ * resolvents on it, as long as that does not increase the number of clauses by more than the
+ * configured growth and no resolvent exceeds the length limit. Candidates are tried in order of
+ * the product of their positive and negative occurrence counts, cheapest first.
+ * The removed clauses are kept on an elimination stack, from which a model of the remaining
+ * clauses is extended to the eliminated variables.
+ */
+public class VariableEliminator {
+    private final ClauseArena arena;
+    private final SolverConfig config;
+    private final int numVars;
+    
+    // Occurrence lists: literal -> references of clauses containing it, including deleted ones
+    private final IntVec[] occurs;
+    
+    // Number of live clauses containing each literal
+    private final int[] occurCount;
+    
+    // Candidates ordered by negated elimination cost, so that the max-heap yields the cheapest
+    private final double[] negatedCost;
+    private final VarHeap queue;
+    
+    private final boolean[] eliminated;
+    private final boolean[] frozen;
+    private int eliminatedCount = 0;
+    
+    // Removed clauses, each stored as its literals with the eliminated literal first, then its size
+    private final IntVec eliminationStack = new IntVec();
+    
+    // Scratch space for building resolvents; marks hold the stamp of the clause being built
+    private final int[] marks;
+    private int stamp = 0;
+    private int[] resolvent = new int[8];
+    private final IntVec positive = new IntVec();
+    private final IntVec negative = new IntVec();
+    
+    public VariableEliminator(ClauseArena arena, int numVars, SolverConfig config) {
+        this.arena = arena;
+        this.config = config;
+        this.numVars = numVars;
+        this.occurs = new IntVec[2 * numVars];
+        for (int i = 0; i < occurs.length; i++) {
+            occurs[i] = new IntVec(4);
+        }
+        this.occurCount = new int[2 * numVars];
+        this.negatedCost = new double[numVars];
+        this.queue = new VarHeap(negatedCost);
+        this.eliminated = new boolean[numVars];
+        this.frozen = new boolean[numVars];
+        this.marks = new int[2 * numVars];
+    }
+    
+    /**
+     * Exclude a variable from elimination, e.g. because it is used in assumptions.
+     */
+    public void freeze(int var) {
+        frozen[var] = true;
+    }
+    
+    public boolean isEliminated(int var) {
+        return eliminated[var];
+    }
+    
+    public int getEliminatedCount() {
+        return eliminatedCount;
+    }
+    
+    /**
+     * Eliminate variables from the given original clauses, which are replaced in place by the
+     * remaining clauses and the added resolvents. Tautologies are dropped.
+     * Returns false if an empty resolvent shows that the clauses are unsatisfiable.
+     */
+    public boolean eliminate(IntVec clauses) {
+        for (int i = 0; i < clauses.size(); i++) {
+            int cref = clauses.get(i);
+            if (isTautology(cref)) {
+                arena.free(cref);
+            } else {
+                attach(cref);
+            }
+        }
+        for (int var = 0; var < numVars; var++) {
+            if (!frozen[var]) {
+                negatedCost[var] = -cost(var);
+                queue.insert(var);
+            }
+        }
+        
+        boolean consistent = true;
+        while (consistent && !queue.isEmpty()) {
+            int var = queue.removeMax();
+            if (!eliminated[var]) {
+                consistent = tryEliminate(var, clauses);
+            }
+        }
+        
+        // Keep the live clauses only
+        int j = 0;
+        for (int i = 0; i < clauses.size(); i++) {
+            if (!arena.isDeleted(clauses.get(i))) {
+                clauses.set(j++, clauses.get(i));
+            }
+        }
+        clauses.shrink(j);
+        return consistent;
+    }
+    
+    /**
+     * Extend a model of the remaining clauses to the eliminated variables.
+     * The removed clauses are replayed from the most recently eliminated variable back; a clause
+     * not satisfied by its other literals forces its eliminated literal to be true.
+     */
+    public void extendModel(boolean[] model) {
+        int i = eliminationStack.size() - 1;
+        while (i >= 0) {
+            int size = eliminationStack.get(i);
+            int first = i - size;
+            boolean satisfied = false;
+            for (int k = first + 1; k < i && !satisfied; k++) {
+                int lit = eliminationStack.get(k);
+                satisfied = model[Lit.var(lit)] != Lit.isNegative(lit);
+            }
+            if (!satisfied) {
+                int pivot = eliminationStack.get(first);
+                model[Lit.var(pivot)] = !Lit.isNegative(pivot);
+            }
+            i = first - 1;
+        }
+    }
+    
+    /**
+     * Eliminate a variable if its resolvents stay within the bounds.
+     * Returns false if an empty resolvent was derived.
+     */
+    private boolean tryEliminate(int var, IntVec clauses) {
+        int pos = Lit.of(var, false);
+        int neg = Lit.neg(pos);
+        collectLive(pos, positive);
+        collectLive(neg, negative);
+        int occurrences = positive.size() + negative.size();
+        if (positive.size() > config.getEliminationOccurrenceLimit()
+            && negative.size() > config.getEliminationOccurrenceLimit()) {
+            return true;
+        }
+        
+        // Count the non-tautological resolvents first and give up once there are too many
+        int bound = occurrences + config.getEliminationGrowth();
+        int resolvents = 0;
+        for (int i = 0; i < positive.size(); i++) {
+            for (int j = 0; j < negative.size(); j++) {
+                int size = resolve(positive.get(i), negative.get(j), pos);
+                if (size >= 0) {
+                    if (++resolvents > bound || size > config.getEliminationResolventLimit()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        
+        for (int i = 0; i < positive.size(); i++) {
+            for (int j = 0; j < negative.size(); j++) {
+                int size = resolve(positive.get(i), negative.get(j), pos);
+                if (size == 0) {
+                    return false;
+                }
+                if (size > 0) {
+                    int cref = arena.alloc(resolvent, size, false);
+                    clauses.push(cref);
+                    attach(cref);
+                    touch(cref);
+                }
+            }
+        }
+        eliminated[var] = true;
+        eliminatedCount++;
+        removeClauses(positive, pos);
+        removeClauses(negative, neg);
+        occurs[pos].clear();
+        occurs[neg].clear();
+        return true;
+    }
+    
+    /**
+     * Build the resolvent of two clauses on a pivot literal in the resolvent buffer.
+     * Returns its size, or -1 if it is a tautology.
+     */
+    private int resolve(int posClause, int negClause, int pivot) {
+        stamp++;
+        int size = 0;
+        int posSize = arena.size(posClause);
+        int negSize = arena.size(negClause);
+        if (resolvent.length < posSize + negSize) {
+            resolvent = new int[posSize + negSize];
+        }
+        for (int k = 0; k < posSize; k++) {
+            int lit = arena.lit(posClause, k);
+            if (lit != pivot) {
+                marks[lit] = stamp;
+                resolvent[size++] = lit;
+            }
+        }
+        for (int k = 0; k < negSize; k++) {
+            int lit = arena.lit(negClause, k);
+            if (Lit.var(lit) == Lit.var(pivot) || marks[lit] == stamp) {
+                continue;
+            }
+            if (marks[Lit.neg(lit)] == stamp) {
+                return -1;
+            }
+            resolvent[size++] = lit;
+        }
+        return size;
+    }
+    
+    /**
+     * Move clauses containing a pivot literal to the elimination stack and delete them.
+     */
+    private void removeClauses(IntVec crefs, int pivot) {
+        for (int i = 0; i < crefs.size(); i++) {
+            int cref = crefs.get(i);
+            int size = arena.size(cref);
+            eliminationStack.push(pivot);
+            for (int k = 0; k < size; k++) {
+                int lit = arena.lit(cref, k);
+                if (lit != pivot) {
+                    eliminationStack.push(lit);
+                }
+            }
+            eliminationStack.push(size);
+            detach(cref);
+            touch(cref);
+            arena.free(cref);
+        }
+    }
+    
+    private void collectLive(int lit, IntVec out) {
+        out.clear();
+        IntVec list = occurs[lit];
+        int j = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int cref = list.get(i);
+            if (!arena.isDeleted(cref)) {
+                list.set(j++, cref);
+                out.push(cref);
+            }
+        }
+        list.shrink(j);
+    }
+    
+    private void attach(int cref) {
+        for (int k = 0; k < arena.size(cref); k++) {
+            int lit = arena.lit(cref, k);
+            occurs[lit].push(cref);
+            occurCount[lit]++;
+        }
+    }
+    
+    /**
+     * Drop a clause from the occurrence counts; its occurrence list entries are removed lazily.
+     */
+    private void detach(int cref) {
+        for (int k = 0; k < arena.size(cref); k++) {
+            occurCount[arena.lit(cref, k)]--;
+        }
+    }
+    
+    /**
+     * Requeue the variables of a clause whose occurrences changed, with their updated cost.
+     */
+    private void touch(int cref) {
+        for (int k = 0; k < arena.size(cref); k++) {
+            int var = Lit.var(arena.lit(cref, k));
+            if (eliminated[var] || frozen[var]) {
+                continue;
+            }
+            double updated = -cost(var);
+            boolean increased = updated > negatedCost[var];
+            negatedCost[var] = updated;
+            if (!queue.contains(var)) {
+                queue.insert(var);
+            } else if (increased) {
+                queue.increased(var);
+            } else {
+                queue.decreased(var);
+            }
+        }
+    }
+    
+    private double cost(int var) {
+        int pos = Lit.of(var, false);
+        return (double) occurCount[pos] * occurCount[Lit.neg(pos)];
+    }
+    
+    private boolean isTautology(int cref) {
+        stamp++;
+        for (int k = 0; k < arena.size(cref); k++) {
+            int lit = arena.lit(cref, k);
+            if (marks[Lit.neg(lit)] == stamp) {
+                return true;
+            }
+            marks[lit] = stamp;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.junit.Test;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class CDCLSolverTest {
+    @Test
+    public void substitutionProofSurvivesSubsumption() {
+        // x1 <-> x2 <-> x3 <-> -x1: no two clauses resolve to a subsuming one, so only the
+        // equivalence reducer sees the contradiction
+        Expr cnf = mkAND(mkAND(mkAND(mkOR(mkNEG(mkVAR(1)), mkVAR(2)),
+                                     mkOR(mkNEG(mkVAR(2)), mkVAR(1))),
+                               mkAND(mkOR(mkNEG(mkVAR(2)), mkVAR(3)),
+                                     mkOR(mkNEG(mkVAR(3)), mkVAR(2)))),
+                         mkAND(mkOR(mkNEG(mkVAR(3)), mkNEG(mkVAR(1))),
+                               mkOR(mkVAR(3), mkVAR(1))));
+        SolverConfig config = new SolverConfig();
+        config.setSubstitution(true);
+        config.setSubsumption(true);
+        config.setElimination(false);
+        config.setProbing(false);
+        CDCLSolver solver = new CDCLSolver(cnf, config);
+        assertFalse(solver.solve());
+        
+        // Preprocessing decided the answer, so the search never ran
+        SolverStats stats = solver.getStats();
+        assertEquals(0, stats.getDecisions());
+        assertEquals(0, stats.getConflicts());
+        assertEquals(0, stats.getSubsumedClauses());
+    }
+}
@@ -0,0 +1,137 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class CNFConverterTest {
+    private static final String TEST_CASES_DIR = "resources/test-cases";
+    private static final Expr X1 = mkVAR(1);
+    private static final Expr X2 = mkVAR(2);
+    private static final Expr X3 = mkVAR(3);
+    
+    @Test
+    public void equisatisfiableWithToTseitinOnGraderInstances() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(TEST_CASES_DIR))) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            // The double negation keeps CNF instances off the plain clause conversion
+            Expr expr = mkNEG(mkNEG(StreamingExprParser.parse(file)));
+            assertFalse(ExprUtils.isCNF(expr));
+            boolean expected = !file.toString().contains("/unsat/");
+            
+            CDCLSolver reference = new CDCLSolver(ExprUtils.toTseitin(expr));
+            assertEquals(file.toString(), expected, reference.solve());
+            
+            List<long[]> clauses = encode(expr, 1, new HashMap<>());
+            CDCLSolver solver = SatUtil.newIncrementalSolver();
+            for (long[] clause : clauses) {
+                solver.addClause(clause);
+            }
+            assertEquals(file.toString(), expected, solver.solve());
+            if (expected) {
+                assertTrue(file.toString(), Models.satisfies(expr, solver.getModel()));
+            }
+        }
+    }
+    
+    @Test
+    public void sharedNodesAreEncodedOnce() {
+        Expr shared = mkAND(X1, X2);
+        Map<Long, Integer> varIndex = new HashMap<>();
+        List<long[]> clauses = encode(mkIMPL(shared, mkOR(shared, X3)), 1, varIndex);
+        
+        // Three inputs and one auxiliary variable each for the AND, the OR and the IMPL
+        assertEquals(6, varIndex.size());
+        assertEquals(3 + 3 + 3 + 1, clauses.size());
+    }
+    
+    @Test
+    public void tautologicalGateClausesAreDropped() {
+        // x <-> (x1 -> x1): the clause (-x | -x1 | x1) is a tautology
+        List<long[]> clauses = encode(mkIMPL(X1, X1), 1, new HashMap<>());
+        assertClauses(clauses, new long[] {2, 1}, new long[] {2, -1}, new long[] {2});
+        
+        // x <-> (x1 <-> -x1): two clauses are tautologies and the others repeat -x1 or x1
+        clauses = encode(mkEQUIV(X1, mkNEG(X1)), 1, new HashMap<>());
+        assertClauses(clauses, new long[] {-2, -1}, new long[] {-2, 1}, new long[] {2});
+        
+        CDCLSolver solver = SatUtil.newIncrementalSolver();
+        for (long[] clause : clauses) {
+            solver.addClause(clause);
+        }
+        assertFalse(solver.solve());
+    }
+    
+    @Test
+    public void auxiliaryIdsStartAboveInputsAndMinimum() {
+        Expr expr = mkOR(mkAND(mkVAR(5), mkVAR(7)), mkVAR(2));
+        
+        // Above the largest input id when the minimum is lower
+        Map<Long, Integer> varIndex = new HashMap<>();
+        encode(expr, 3, varIndex);
+        assertEquals(new HashSet<>(Arrays.asList(5L, 7L, 2L, 8L, 9L)), varIndex.keySet());
+        
+        // From the minimum when it is higher
+        varIndex = new HashMap<>();
+        encode(expr, 100, varIndex);
+        assertEquals(new HashSet<>(Arrays.asList(5L, 7L, 2L, 100L, 101L)), varIndex.keySet());
+        
+        // Solver variables already in use are kept and new ones numbered after them
+        varIndex = new HashMap<>();
+        varIndex.put(1000L, 0);
+        encode(expr, 1001, varIndex);
+        assertEquals(Integer.valueOf(0), varIndex.get(1000L));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4, 5)),
+                     new HashSet<>(varIndex.values()));
+        assertTrue(varIndex.containsKey(1001L) && varIndex.containsKey(1002L));
+    }
+    
+    /**
+     * Tseitin encode an expression and return its clauses as signed variable ids.
+     */
+    private static List<long[]> encode(Expr expr, long minAuxId, Map<Long, Integer> varIndex) {
+        ClauseArena arena = new ClauseArena();
+        IntVec crefs = CNFConverter.toTseitinClauses(expr, minAuxId, arena, varIndex);
+        long[] ids = new long[varIndex.size()];
+        for (Map.Entry<Long, Integer> entry : varIndex.entrySet()) {
+            ids[entry.getValue()] = entry.getKey();
+        }
+        List<long[]> clauses = new ArrayList<>();
+        for (int i = 0; i < crefs.size(); i++) {
+            long[] clause = new long[arena.size(crefs.get(i))];
+            for (int k = 0; k < clause.length; k++) {
+                int lit = arena.lit(crefs.get(i), k);
+                clause[k] = Lit.isNegative(lit) ? -ids[Lit.var(lit)] : ids[Lit.var(lit)];
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+    
+    /**
+     * Check the clauses up to the order of clauses and of the literals within them.
+     */
+    private static void assertClauses(List<long[]> actual, long[]... expected) {
+        assertEquals(toSets(Arrays.asList(expected)), toSets(actual));
+    }
+    
+    private static Set<Set<Long>> toSets(List<long[]> clauses) {
+        Set<Set<Long>> sets = new HashSet<>();
+        for (long[] clause : clauses) {
+            assertTrue(sets.add(Arrays.stream(clause).boxed().collect(Collectors.toSet())));
+        }
+        return sets;
+    }
+}
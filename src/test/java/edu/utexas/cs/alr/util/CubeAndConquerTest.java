@@ -0,0 +1,112 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class CubeAndConquerTest {
+    private static final String TEST_CASES_DIR = "resources/test-cases";
+    private static final int THREADS = 4;
+    
+    @Test
+    public void agreesWithSingleSolverOnGraderInstances() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(TEST_CASES_DIR))) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            Expr expr = StreamingExprParser.parse(file);
+            boolean expected = !file.toString().contains("/unsat/");
+            assertEquals(file.toString(), expected, SatUtil.checkSAT(expr));
+            
+            CubeAndConquer cubeAndConquer = new CubeAndConquer(expr, THREADS);
+            assertEquals(file.toString(), expected, cubeAndConquer.solve());
+            assertEquals(cubeAndConquer.getCubes().size(), cubeAndConquer.getCubeTimes().length);
+            if (expected) {
+                assertTrue(file.toString(), Models.satisfies(expr, cubeAndConquer.getModel()));
+            } else {
+                assertNull(cubeAndConquer.getModel());
+                assertEveryCubeRefuted(expr, cubeAndConquer.getCubes());
+            }
+        }
+    }
+    
+    @Test
+    public void stopsAtFirstSatisfiableCube() {
+        // Few clauses per variable, so nearly every cube is satisfiable
+        Random random = new Random(3);
+        Expr cnf = random3Sat(random, 120, 240);
+        CubeAndConquer cubeAndConquer = new CubeAndConquer(cnf, new SolverConfig(), 5, 1);
+        assertTrue(cubeAndConquer.solve());
+        Map<Long, Boolean> model = cubeAndConquer.getModel();
+        assertTrue(Models.satisfies(cnf, model));
+        
+        List<long[]> cubes = cubeAndConquer.getCubes();
+        long[] times = cubeAndConquer.getCubeTimes();
+        assertEquals(cubes.size(), times.length);
+        assertTrue(cubes.size() > 1);
+        int solved = 0;
+        boolean modelInSolvedCube = false;
+        for (int i = 0; i < cubes.size(); i++) {
+            if (times[i] >= 0) {
+                solved++;
+                modelInSolvedCube |= Arrays.stream(cubes.get(i)).allMatch(
+                    lit -> model.getOrDefault(Math.abs(lit), false) == lit > 0);
+            }
+        }
+        assertTrue(solved > 0);
+        assertTrue("every cube was solved", solved < cubes.size());
+        assertTrue(modelInSolvedCube);
+    }
+    
+    @Test
+    public void unsatisfiableInstanceRefutesEveryCube() {
+        Random random = new Random(11);
+        for (int instance = 0; instance < 3; instance++) {
+            Expr cnf = random3Sat(random, 150, 690);
+            assertFalse(SatUtil.checkSAT(cnf));
+            CubeAndConquer cubeAndConquer = new CubeAndConquer(cnf, new SolverConfig(), 4,
+                                                               THREADS);
+            assertFalse(cubeAndConquer.solve());
+            assertNull(cubeAndConquer.getModel());
+            assertFalse(cubeAndConquer.getCubes().isEmpty());
+            assertEquals(cubeAndConquer.getCubes().size(), cubeAndConquer.getCubeTimes().length);
+            assertEveryCubeRefuted(cnf, cubeAndConquer.getCubes());
+        }
+    }
+    
+    /**
+     * Check that no cube can be extended to a model, with a solver of its own under the cube as
+     * assumptions.
+     */
+    private static void assertEveryCubeRefuted(Expr expr, List<long[]> cubes) {
+        CDCLSolver solver = SatUtil.newIncrementalSolver();
+        solver.addExpr(expr);
+        for (long[] cube : cubes) {
+            assertFalse(Arrays.toString(cube), solver.solve(cube));
+        }
+    }
+    
+    private static Expr random3Sat(Random random, int numVars, int numClauses) {
+        Expr cnf = null;
+        for (int i = 0; i < numClauses; i++) {
+            Expr or = null;
+            for (int k = 0; k < 3; k++) {
+                long id = 1 + random.nextInt(numVars);
+                Expr lit = random.nextBoolean() ? mkVAR(id) : mkNEG(mkVAR(id));
+                or = or == null ? lit : mkOR(or, lit);
+            }
+            cnf = cnf == null ? or : mkAND(cnf, or);
+        }
+        return cnf;
+    }
+}
@@ -0,0 +1,198 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class ExprWalkerTest {
+    private static final int DEEP = 100000;
+    
+    // (impl s (or s x1)) with s = (and x1 (not x2)) shared by both operands
+    private static final Expr SHARED = mkAND(mkVAR(1), mkNEG(mkVAR(2)));
+    private static final Expr DAG = mkIMPL(SHARED, mkOR(SHARED, mkVAR(1)));
+    
+    @Test
+    public void entersBeforeAndExitsAfterChildren() {
+        RecordingListener listener = new RecordingListener(false);
+        ExprWalker.dfsWalk(DAG, listener);
+        assertEquals(Arrays.asList("enter IMPL",
+                                   "enter AND", "enter x1", "exit x1",
+                                   "enter NEG", "enter x2", "exit x2", "exit NEG", "exit AND",
+                                   "enter OR",
+                                   "enter AND", "enter x1", "exit x1",
+                                   "enter NEG", "enter x2", "exit x2", "exit NEG", "exit AND",
+                                   "enter x1", "exit x1", "exit OR",
+                                   "exit IMPL"),
+                     listener.events);
+    }
+    
+    @Test
+    public void visitOnceSkipsSharedNodes() {
+        RecordingListener listener = new RecordingListener(false);
+        ExprWalker.dfsWalk(DAG, listener, true);
+        assertEquals(Arrays.asList("enter IMPL",
+                                   "enter AND", "enter x1", "exit x1",
+                                   "enter NEG", "enter x2", "exit x2", "exit NEG", "exit AND",
+                                   "enter OR", "exit OR",
+                                   "exit IMPL"),
+                     listener.events);
+    }
+    
+    @Test
+    public void falseFromEnterSkipsChildren() {
+        RecordingListener listener = new RecordingListener(true);
+        ExprWalker.dfsWalk(DAG, listener);
+        assertEquals(Arrays.asList("enter IMPL",
+                                   "enter AND", "exit AND",
+                                   "enter OR", "enter AND", "exit AND", "enter x1", "exit x1",
+                                   "exit OR",
+                                   "exit IMPL"),
+                     listener.events);
+        
+        // A node whose children were skipped still counts as visited
+        listener = new RecordingListener(true);
+        ExprWalker.dfsWalk(DAG, listener, true);
+        assertEquals(Arrays.asList("enter IMPL",
+                                   "enter AND", "exit AND",
+                                   "enter OR", "enter x1", "exit x1", "exit OR",
+                                   "exit IMPL"),
+                     listener.events);
+    }
+    
+    @Test
+    public void walksDeepExpressions() {
+        Expr chain = deepChain();
+        int[] counts = new int[2];
+        ExprWalker.dfsWalk(chain, new ExprBaseASTListener() {
+            @Override
+            public boolean enterIMPL(ImplExpr e) {
+                counts[0]++;
+                return true;
+            }
+            
+            @Override
+            public void exitIMPL(ImplExpr e) {
+                counts[1]++;
+            }
+        });
+        assertEquals(DEEP, counts[0]);
+        assertEquals(DEEP, counts[1]);
+    }
+    
+    @Test
+    public void transformsDeepExpressions() {
+        Expr chain = deepChain();
+        assertFalse(ExprUtils.isCNF(chain));
+        
+        // Without implications the chain is a single clause of negated variables and x1
+        Expr nnf = ExprUtils.toNNF(chain);
+        assertTrue(ExprUtils.isDisjunctionOfLiterals(nnf));
+        
+        // The auxiliary variables of the encoding start above the largest input id
+        Expr tseitin = ExprUtils.toTseitin(chain);
+        assertTrue(ExprUtils.isCNF(tseitin));
+        long[] minAuxId = {Long.MAX_VALUE};
+        ExprWalker.dfsWalk(tseitin, new ExprBaseASTListener() {
+            @Override
+            public void enterVAR(VarExpr e) {
+                if (e.getId() > DEEP + 1) {
+                    minAuxId[0] = Math.min(minAuxId[0], e.getId());
+                }
+            }
+        }, true);
+        assertEquals(DEEP + 2, minAuxId[0]);
+    }
+    
+    /**
+     * (impl x2 (impl x3 ... (impl x(DEEP + 1) (not x1)))), built bottom-up without recursion.
+     */
+    private static Expr deepChain() {
+        Expr chain = mkNEG(mkVAR(1));
+        for (long id = DEEP + 1; id >= 2; id--) {
+            chain = mkIMPL(mkVAR(id), chain);
+        }
+        return chain;
+    }
+    
+    /**
+     * Records the enter and exit events of the nodes of {@link #DAG}, named by their kind or,
+     * for variables, their id.
+     */
+    private static final class RecordingListener implements ExprASTListener {
+        private final List<String> events = new ArrayList<>();
+        private final boolean skipAnd;
+        
+        RecordingListener(boolean skipAnd) {
+            this.skipAnd = skipAnd;
+        }
+        
+        @Override
+        public void enterVAR(VarExpr e) {
+            events.add("enter x" + e.getId());
+        }
+        
+        @Override
+        public void exitVAR(VarExpr e) {
+            events.add("exit x" + e.getId());
+        }
+        
+        @Override
+        public boolean enterNEG(NegExpr e) {
+            events.add("enter NEG");
+            return true;
+        }
+        
+        @Override
+        public void exitNEG(NegExpr e) {
+            events.add("exit NEG");
+        }
+        
+        @Override
+        public boolean enterOR(OrExpr e) {
+            events.add("enter OR");
+            return true;
+        }
+        
+        @Override
+        public void exitOR(OrExpr e) {
+            events.add("exit OR");
+        }
+        
+        @Override
+        public boolean enterAND(AndExpr e) {
+            events.add("enter AND");
+            return !skipAnd;
+        }
+        
+        @Override
+        public void exitAND(AndExpr e) {
+            events.add("exit AND");
+        }
+        
+        @Override
+        public boolean enterIMPL(ImplExpr e) {
+            events.add("enter IMPL");
+            return true;
+        }
+        
+        @Override
+        public void exitIMPL(ImplExpr e) {
+            events.add("exit IMPL");
+        }
+        
+        @Override
+        public boolean enterEQUIV(EquivExpr e) {
+            events.add("enter EQUIV");
+            return true;
+        }
+        
+        @Override
+        public void exitEQUIV(EquivExpr e) {
+            events.add("exit EQUIV");
+        }
+    }
+}
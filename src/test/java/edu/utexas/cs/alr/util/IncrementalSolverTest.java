@@ -0,0 +1,129 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.junit.Test;
+
+import java.util.*;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class IncrementalSolverTest {
+    @Test
+    public void answersFollowAssumptionsAndAddedClauses() {
+        CDCLSolver solver = SatUtil.newIncrementalSolver();
+        solver.addClause(1, 2);
+        solver.addClause(-1, 3);
+        assertTrue(solver.solve());
+        
+        // -2 forces 1 and then 3
+        assertFalse(solver.solve(-2, -3));
+        assertTrue(Set.of(-2L, -3L).containsAll(solver.getFailedAssumptions()));
+        assertFalse(solver.getFailedAssumptions().isEmpty());
+        
+        assertTrue(solver.solve(-2));
+        assertEquals(true, solver.getModel().get(1L));
+        assertEquals(true, solver.getModel().get(3L));
+        
+        // Assumptions only hold for one call
+        assertTrue(solver.solve(-3));
+        assertEquals(false, solver.getModel().get(1L));
+        assertEquals(true, solver.getModel().get(2L));
+        
+        solver.addClause(-3);
+        assertTrue(solver.solve());
+        assertFalse(solver.solve(-2));
+        assertEquals(Set.of(-2L), solver.getFailedAssumptions());
+        
+        // New variables may appear between calls
+        solver.addClause(4, 5);
+        assertTrue(solver.solve(-4));
+        assertEquals(true, solver.getModel().get(5L));
+        
+        solver.addClause(-2);
+        assertFalse(solver.solve());
+        assertTrue(solver.getFailedAssumptions().isEmpty());
+        assertFalse(solver.solve(4));
+    }
+    
+    @Test
+    public void failedAssumptionsAreAnUnsatisfiableSubset() {
+        Random random = new Random(42);
+        int failures = 0;
+        for (int instance = 0; instance < 30; instance++) {
+            int numVars = 40;
+            List<long[]> clauses = random3Sat(random, numVars, 150);
+            CDCLSolver solver = SatUtil.newIncrementalSolver();
+            for (long[] clause : clauses) {
+                solver.addClause(clause);
+            }
+            if (!solver.solve()) {
+                continue;
+            }
+            for (int query = 0; query < 20; query++) {
+                long[] assumptions = new long[5 + random.nextInt(15)];
+                for (int i = 0; i < assumptions.length; i++) {
+                    long id = 1 + random.nextInt(numVars);
+                    assumptions[i] = random.nextBoolean() ? id : -id;
+                }
+                Set<Long> assumed = new HashSet<>();
+                for (long lit : assumptions) {
+                    assumed.add(lit);
+                }
+                if (solver.solve(assumptions)) {
+                    Map<Long, Boolean> model = solver.getModel();
+                    for (long lit : assumptions) {
+                        assertEquals(lit > 0, model.get(Math.abs(lit)));
+                    }
+                    continue;
+                }
+                Set<Long> failed = solver.getFailedAssumptions();
+                assertFalse(failed.isEmpty());
+                assertTrue(assumed.containsAll(failed));
+                
+                // The subset alone is enough, for this solver and for a fresh one
+                long[] subset = failed.stream().mapToLong(Long::longValue).toArray();
+                assertFalse(solver.solve(subset));
+                CDCLSolver fresh = SatUtil.newIncrementalSolver();
+                for (long[] clause : clauses) {
+                    fresh.addClause(clause);
+                }
+                assertFalse(fresh.solve(subset));
+                failures++;
+            }
+        }
+        assertTrue("too few unsatisfiable queries: " + failures, failures > 20);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void addClauseAfterEliminationThrows() {
+        // x2 only links the other two clauses, so elimination resolves it away
+        Expr cnf = mkAND(mkAND(mkOR(mkVAR(1), mkVAR(2)), mkOR(mkNEG(mkVAR(2)), mkVAR(3))),
+                         mkOR(mkVAR(3), mkVAR(4)));
+        CDCLSolver solver = new CDCLSolver(cnf);
+        assertTrue(solver.getStats().eliminatedVars > 0);
+        solver.addClause(1, 4);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void addExprAfterEliminationThrows() {
+        Expr cnf = mkAND(mkAND(mkOR(mkVAR(1), mkVAR(2)), mkOR(mkNEG(mkVAR(2)), mkVAR(3))),
+                         mkOR(mkVAR(3), mkVAR(4)));
+        CDCLSolver solver = new CDCLSolver(cnf);
+        assertTrue(solver.getStats().eliminatedVars > 0);
+        solver.addExpr(mkIMPL(mkVAR(1), mkVAR(4)));
+    }
+    
+    private static List<long[]> random3Sat(Random random, int numVars, int numClauses) {
+        List<long[]> clauses = new ArrayList<>();
+        for (int i = 0; i < numClauses; i++) {
+            long[] clause = new long[3];
+            for (int k = 0; k < 3; k++) {
+                long id = 1 + random.nextInt(numVars);
+                clause[k] = random.nextBoolean() ? id : -id;
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.*;
+
+import java.util.*;
+
+/**
+ * Checks of the models found by the solvers.
+ */
+final class Models {
+    private Models() {
+    }
+    
+    /**
+     * Evaluate an expression under a model, with unassigned variables false, visiting the nodes in
+     * post-order with an explicit stack.
+     */
+    static boolean satisfies(Expr root, Map<Long, Boolean> model) {
+        Map<Expr, Boolean> values = new IdentityHashMap<>();
+        Deque<Expr> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Expr e = stack.peek();
+            if (values.containsKey(e)) {
+                stack.pop();
+                continue;
+            }
+            if (e.getKind() == Expr.ExprKind.VAR) {
+                values.put(stack.pop(), model.getOrDefault(((VarExpr) e).getId(), false));
+                continue;
+            }
+            if (e.getKind() == Expr.ExprKind.NEG) {
+                Expr operand = ((NegExpr) e).getExpr();
+                if (values.containsKey(operand)) {
+                    values.put(stack.pop(), !values.get(operand));
+                } else {
+                    stack.push(operand);
+                }
+                continue;
+            }
+            Expr left = TseitinGates.operand(e, 0);
+            Expr right = TseitinGates.operand(e, 1);
+            if (!values.containsKey(left) || !values.containsKey(right)) {
+                stack.push(left);
+                stack.push(right);
+                continue;
+            }
+            boolean a = values.get(left);
+            boolean b = values.get(right);
+            switch (e.getKind()) {
+                case AND:
+                    values.put(stack.pop(), a && b);
+                    break;
+                case OR:
+                    values.put(stack.pop(), a || b);
+                    break;
+                case IMPL:
+                    values.put(stack.pop(), !a || b);
+                    break;
+                default:
+                    values.put(stack.pop(), a == b);
+                    break;
+            }
+        }
+        return values.get(root);
+    }
+}
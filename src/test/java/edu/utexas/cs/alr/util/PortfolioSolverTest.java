@@ -0,0 +1,104 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class PortfolioSolverTest {
+    private static final String TEST_CASES_DIR = "resources/test-cases";
+    private static final int THREADS = 4;
+    
+    @Test
+    public void agreesWithSingleSolverOnGraderInstances() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(TEST_CASES_DIR))) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            Expr expr = StreamingExprParser.parse(file);
+            boolean expected = !file.toString().contains("/unsat/");
+            assertEquals(file.toString(), expected, SatUtil.checkSAT(expr));
+            assertEquals(file.toString(), expected, SatUtil.checkSAT(expr, THREADS));
+            assertNoPoolThreads();
+        }
+    }
+    
+    @Test
+    public void sharesClausesAndStopsLosersOnRandomInstances() {
+        Random random = new Random(7);
+        long exported = 0;
+        for (int instance = 0; instance < 6; instance++) {
+            List<long[]> clauses = new ArrayList<>();
+            Expr cnf = random3Sat(random, 150, 640, clauses);
+            boolean expected = SatUtil.checkSAT(cnf);
+            
+            PortfolioSolver portfolio = new PortfolioSolver(cnf, THREADS);
+            assertEquals(expected, portfolio.solve());
+            assertTrue(portfolio.getWinner() >= 0 && portfolio.getWinner() < THREADS);
+            if (expected) {
+                Map<Long, Boolean> model = portfolio.getModel();
+                for (long[] clause : clauses) {
+                    assertTrue(Arrays.stream(clause).anyMatch(
+                        lit -> model.getOrDefault(Math.abs(lit), false) == lit > 0));
+                }
+            }
+            // solve only returns once every worker did, so the losers were stopped
+            assertNoPoolThreads();
+            for (SolverStats stats : portfolio.getAllStats()) {
+                exported += stats.exportedClauses;
+            }
+        }
+        assertTrue(exported > 0);
+    }
+    
+    /**
+     * Check that the threads of the portfolio's executor terminate after solve, allowing them a
+     * moment to exit after the shutdown.
+     */
+    private static void assertNoPoolThreads() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            long alive = Thread.getAllStackTraces().keySet().stream()
+                               .filter(t -> t.getName().startsWith("pool-") && t.isAlive())
+                               .count();
+            if (alive == 0) {
+                return;
+            }
+            assertTrue(alive + " executor threads still alive",
+                       System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private static Expr random3Sat(Random random, int numVars, int numClauses,
+                                   List<long[]> clauses) {
+        Expr cnf = null;
+        for (int i = 0; i < numClauses; i++) {
+            long[] clause = new long[3];
+            Expr or = null;
+            for (int k = 0; k < 3; k++) {
+                long id = 1 + random.nextInt(numVars);
+                clause[k] = random.nextBoolean() ? id : -id;
+                Expr lit = clause[k] > 0 ? mkVAR(id) : mkNEG(mkVAR(id));
+                or = or == null ? lit : mkOR(or, lit);
+            }
+            clauses.add(clause);
+            cnf = cnf == null ? or : mkAND(cnf, or);
+        }
+        return cnf;
+    }
+}
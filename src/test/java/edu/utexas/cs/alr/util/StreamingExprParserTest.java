@@ -0,0 +1,137 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class StreamingExprParserTest {
+    private static final String TEST_CASES_DIR = "resources/test-cases";
+    
+    @Test
+    public void parsesAllOperators() {
+        assertSame(mkVAR(1), parse("x1"));
+        assertSame(mkVAR(42), parse("((x42))"));
+        assertSame(mkNEG(mkVAR(3)), parse("(not x3)"));
+        assertSame(mkAND(mkVAR(1), mkOR(mkVAR(2), mkNEG(mkVAR(3)))),
+                   parse(" (and\n\tx1 (or x2\r\n (not x3)))\n"));
+        assertSame(mkIMPL(mkEQUIV(mkVAR(1), mkVAR(2)), mkVAR(3)),
+                   parse("(impl (equiv x1 x2) ((x3)))"));
+    }
+    
+    @Test
+    public void parsesDeepNestingWithoutRecursion() {
+        int depth = 100000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            input.append("(and x").append(i + 2).append(' ');
+        }
+        input.append("x1");
+        for (int i = 0; i < depth; i++) {
+            input.append(')');
+        }
+        Expr expected = mkVAR(1);
+        for (int i = depth - 1; i >= 0; i--) {
+            expected = mkAND(mkVAR(i + 2), expected);
+        }
+        assertSame(expected, parse(input.toString()));
+    }
+    
+    @Test
+    public void agreesWithAntlrOnTestCases() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(TEST_CASES_DIR))) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            Expr antlr = ExprUtils.parseFrom(new ByteArrayInputStream(Files.readAllBytes(file)));
+            assertSame(file.toString(), antlr, StreamingExprParser.parse(file));
+        }
+    }
+    
+    @Test
+    public void rejectsUnmatchedClosingParenthesis() {
+        assertError(")", "line 1:0 unmatched ')'");
+    }
+    
+    @Test
+    public void rejectsEmptyParentheses() {
+        assertError("(and x1 ())", "line 1:9 empty parentheses");
+    }
+    
+    @Test
+    public void rejectsMissingOperands() {
+        assertError("(and x1)", "line 1:7 missing operand");
+        assertError("(not)", "line 1:4 missing operand");
+    }
+    
+    @Test
+    public void rejectsExtraOperands() {
+        assertError("(or x1 x2 x3)", "line 1:10 too many operands");
+        assertError("(not x1 x2)", "line 1:8 too many operands");
+        assertError("(x1 x2)", "line 1:4 too many operands");
+    }
+    
+    @Test
+    public void rejectsMalformedVariables() {
+        assertError("x0", "line 1:1 malformed variable");
+        assertError("(not x)", "line 1:6 malformed variable");
+        assertError("x01", "line 1:1 malformed variable");
+    }
+    
+    @Test
+    public void rejectsVariableIdOverflow() {
+        assertSame(mkVAR(Long.MAX_VALUE), parse("x9223372036854775807"));
+        assertError("(not x9223372036854775808)", "line 1:24 variable id too large");
+    }
+    
+    @Test
+    public void rejectsTrailingInput() {
+        // ANTLR stops after the expression and ignores the rest; this parser does not
+        assertError("x1 x2", "line 1:3 extraneous input after the expression");
+        assertError("(and x1 x2))", "line 1:11 extraneous input after the expression");
+    }
+    
+    @Test
+    public void rejectsUnknownTokensAndTruncatedInput() {
+        assertError("", "line 1:0 unexpected end of input");
+        assertError("(and (or x1 x2) x3", "line 1:18 unexpected end of input");
+        assertError("(foo x1)", "line 1:1 unexpected character 'f'");
+        assertError("(x1 and x2)", "line 1:4 unexpected 'and'");
+    }
+    
+    @Test
+    public void reportsLineAndColumn() {
+        assertError("(and x1\n  (or x2\n      x3 x4))", "line 3:9 too many operands");
+        assertError("(not\r\n\tx0)", "line 2:2 malformed variable");
+    }
+    
+    private static Expr parse(String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+        return StreamingExprParser.parse(ByteBuffer.wrap(bytes));
+    }
+    
+    /**
+     * Check that parsing the input throws ParseCancellationException with the given message.
+     */
+    private static void assertError(String input, String message) {
+        try {
+            parse(input);
+            fail("accepted " + input);
+        } catch (ParseCancellationException e) {
+            assertEquals(input, message, e.getMessage());
+        }
+    }
+}
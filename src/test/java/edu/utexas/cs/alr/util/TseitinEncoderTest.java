@@ -0,0 +1,96 @@
+package edu.utexas.cs.alr.util;
+
+import edu.utexas.cs.alr.ast.Expr;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static edu.utexas.cs.alr.ast.ExprFactory.*;
+import static org.junit.Assert.*;
+
+public class TseitinEncoderTest {
+    private static final Expr X1 = mkVAR(1);
+    private static final Expr X2 = mkVAR(2);
+    private static final Expr X3 = mkVAR(3);
+    
+    @Test
+    public void poppedScopeNoLongerConstrains() {
+        TseitinEncoder encoder = new TseitinEncoder(SatUtil.newIncrementalSolver());
+        encoder.assertExpr(mkOR(X1, X2));
+        assertTrue(encoder.solve());
+        
+        encoder.push();
+        encoder.assertExpr(mkNEG(X1));
+        encoder.assertExpr(mkNEG(X2));
+        assertFalse(encoder.solve());
+        
+        encoder.pop();
+        assertEquals(0, encoder.getScopeDepth());
+        assertTrue(encoder.solve());
+        
+        // The permanent assertion still holds after the pop
+        encoder.assertExpr(mkNEG(X1));
+        assertTrue(encoder.solve());
+        assertEquals(true, encoder.getSolver().getModel().get(2L));
+    }
+    
+    @Test
+    public void nestedScopesArePoppedInnermostFirst() {
+        TseitinEncoder encoder = new TseitinEncoder(SatUtil.newIncrementalSolver());
+        encoder.assertExpr(mkIMPL(X1, X2));
+        
+        encoder.push();
+        encoder.assertExpr(X1);
+        assertTrue(encoder.solve());
+        assertEquals(true, encoder.getSolver().getModel().get(2L));
+        
+        encoder.push();
+        encoder.assertExpr(mkEQUIV(X2, X3));
+        encoder.assertExpr(mkNEG(X3));
+        assertEquals(2, encoder.getScopeDepth());
+        assertFalse(encoder.solve());
+        
+        // Popping the inner scope keeps the outer one: x1 still forces x2
+        encoder.pop();
+        assertTrue(encoder.solve());
+        Map<Long, Boolean> model = encoder.getSolver().getModel();
+        assertEquals(true, model.get(1L));
+        assertEquals(true, model.get(2L));
+        assertFalse(encoder.solve(-2));
+        
+        encoder.pop();
+        assertTrue(encoder.solve(-2));
+        assertEquals(false, encoder.getSolver().getModel().get(1L));
+    }
+    
+    @Test
+    public void failedAssumptionsLeaveOutScopes() {
+        TseitinEncoder encoder = new TseitinEncoder(SatUtil.newIncrementalSolver());
+        encoder.push();
+        encoder.assertExpr(mkAND(X1, mkIMPL(X2, X3)));
+        long x2AndNotX3 = encoder.literalOf(mkAND(X2, mkNEG(X3)));
+        assertFalse(encoder.solve(x2AndNotX3));
+        assertEquals(Set.of(x2AndNotX3), encoder.getFailedAssumptions());
+        assertTrue(encoder.solve(-x2AndNotX3));
+    }
+    
+    @Test
+    public void sharedSubexpressionsAreEncodedOnce() {
+        TseitinEncoder encoder = new TseitinEncoder(SatUtil.newIncrementalSolver());
+        Expr shared = mkAND(mkOR(X1, X2), mkNEG(X3));
+        encoder.assertExpr(mkOR(shared, X3));
+        int definitions = encoder.getDefinitionCount();
+        assertEquals(3, definitions);
+        
+        encoder.push();
+        encoder.assertExpr(mkEQUIV(shared, X1));
+        assertEquals(definitions + 1, encoder.getDefinitionCount());
+        encoder.pop();
+        
+        // Definitions survive the pop and are not encoded again
+        assertEquals(encoder.literalOf(shared), encoder.literalOf(mkAND(mkOR(X1, X2), mkNEG(X3))));
+        assertEquals(definitions + 1, encoder.getDefinitionCount());
+        assertTrue(encoder.solve());
+    }
+}